@@ -0,0 +1,16 @@
+-- ================================================================
+-- MIGRATION: Unique cart line per item
+-- ================================================================
+-- Date: 2026-10-17
+-- Description: Cart saves upsert only the changed lines with
+--              INSERT ... ON DUPLICATE KEY UPDATE, which needs one
+--              row per (cart_id, item_id)
+-- ================================================================
+
+-- Drop duplicate lines left by older versions, keeping the newest row
+DELETE older FROM cart_items older
+JOIN cart_items newer
+  ON newer.cart_id = older.cart_id AND newer.item_id = older.item_id AND newer.id > older.id;
+
+-- This will fail if the key already exists, which is acceptable for our migration strategy
+ALTER TABLE cart_items ADD UNIQUE KEY uk_cart_items_cart_item (cart_id, item_id);
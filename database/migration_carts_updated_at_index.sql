@@ -0,0 +1,10 @@
+-- ================================================================
+-- MIGRATION: Index carts by last update
+-- ================================================================
+-- Date: 2026-10-17
+-- Description: The abandoned-cart reaper walks idle carts in
+--              (updated_at, id) order
+-- ================================================================
+
+-- This will fail if the index already exists, which is acceptable for our migration strategy
+ALTER TABLE carts ADD INDEX idx_carts_updated_at (updated_at, id);
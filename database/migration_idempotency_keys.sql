@@ -0,0 +1,19 @@
+-- ================================================================
+-- MIGRATION: Idempotency keys for order placement
+-- ================================================================
+-- Date: 2026-10-17
+-- Description: One row per checkout key. A repeated payment upload
+--              with the same key gets the stored response instead
+--              of a second order
+-- ================================================================
+
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    idempotency_key VARCHAR(64) NOT NULL,
+    user_id VARCHAR(36) NOT NULL,
+    status ENUM('PENDING', 'COMPLETED') NOT NULL DEFAULT 'PENDING',
+    response TEXT NULL,
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    completed_at DATETIME NULL,
+    PRIMARY KEY (idempotency_key),
+    INDEX idx_idempotency_keys_created (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
@@ -0,0 +1,10 @@
+-- ================================================================
+-- MIGRATION: Index published items by catalog order
+-- ================================================================
+-- Date: 2026-10-17
+-- Description: The catalog keyset-scans published, eligible items
+--              in (created_at DESC, id DESC) order
+-- ================================================================
+
+-- This will fail if the index already exists, which is acceptable for our migration strategy
+ALTER TABLE items ADD INDEX idx_items_catalog (is_published, eligibility_status, created_at, id);
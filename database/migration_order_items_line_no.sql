@@ -0,0 +1,13 @@
+-- ================================================================
+-- MIGRATION: Line numbers for order items
+-- ================================================================
+-- Date: 2026-10-17
+-- Description: order_items.id is a random UUID, so it says nothing
+--              about which line came first. line_no keeps the
+--              position of each line in its order (0 = first).
+--              Existing rows get 0 and fall back to id order
+-- ================================================================
+
+ALTER TABLE order_items ADD COLUMN line_no INT NOT NULL DEFAULT 0 AFTER order_id;
+
+ALTER TABLE order_items ADD INDEX idx_order_items_line (order_id, line_no);
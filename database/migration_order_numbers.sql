@@ -0,0 +1,33 @@
+-- ================================================================
+-- MIGRATION: Unique order numbers from a counter table
+-- ================================================================
+-- Date: 2026-10-17
+-- Description: Order numbers come from number_sequences in blocks;
+--              the unique key makes a collision fail the insert
+-- ================================================================
+
+CREATE TABLE IF NOT EXISTS number_sequences (
+    name VARCHAR(50) NOT NULL PRIMARY KEY,
+    next_value BIGINT NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+INSERT IGNORE INTO number_sequences (name, next_value) VALUES ('order_number', 1);
+
+-- Older timestamp-based numbers could collide; suffix all but the first of each duplicate
+UPDATE orders o
+JOIN orders first_order
+  ON first_order.order_number = o.order_number AND first_order.id < o.id
+SET o.order_number = CONCAT(o.order_number, '-', LEFT(o.id, 8));
+
+-- The plain index is redundant next to the unique key.
+-- This will fail if it was already dropped, which is acceptable for our migration strategy
+ALTER TABLE orders DROP INDEX idx_order_number;
+
+-- Tables created from the old schema already have a unique key named after the
+-- column (order_number ... UNIQUE); rename it rather than add a second one.
+-- This will fail if there is no such key, which is acceptable for our migration strategy
+ALTER TABLE orders RENAME INDEX order_number TO uk_orders_order_number;
+
+-- Tables without a unique key get one.
+-- This will fail if the key already exists, which is acceptable for our migration strategy
+ALTER TABLE orders ADD UNIQUE KEY uk_orders_order_number (order_number);
@@ -0,0 +1,18 @@
+-- ================================================================
+-- MIGRATION: Stock reservations
+-- ================================================================
+-- Date: 2026-10-17
+-- Description: Time-bounded holds placed by carts on item stock.
+--              The application keeps live holds in memory; this
+--              table lets them survive a restart
+-- ================================================================
+
+CREATE TABLE IF NOT EXISTS stock_reservations (
+    item_id VARCHAR(255) NOT NULL,
+    holder_id VARCHAR(36) NOT NULL,
+    quantity INT NOT NULL,
+    expires_at DATETIME NOT NULL,
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (item_id, holder_id),
+    INDEX idx_stock_reservations_expires (expires_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
@@ -76,7 +76,8 @@ CREATE TABLE IF NOT EXISTS items (
     INDEX idx_category_id (category_id),
     INDEX idx_eligibility_status (eligibility_status),
     INDEX idx_is_published (is_published),
-    INDEX idx_condition (`condition`)
+    INDEX idx_condition (`condition`),
+    INDEX idx_items_catalog (is_published, eligibility_status, created_at, id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 -- ================================================================
@@ -88,7 +89,8 @@ CREATE TABLE IF NOT EXISTS carts (
     user_id VARCHAR(255) NOT NULL UNIQUE,
     created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
     updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
-    INDEX idx_user_id (user_id)
+    INDEX idx_user_id (user_id),
+    INDEX idx_carts_updated_at (updated_at, id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 CREATE TABLE IF NOT EXISTS cart_items (
@@ -99,11 +101,22 @@ CREATE TABLE IF NOT EXISTS cart_items (
     price DECIMAL(12,2) NOT NULL,
     created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
     updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_cart_items_cart_item (cart_id, item_id),
     INDEX idx_cart_id (cart_id),
     INDEX idx_item_id (item_id),
     CONSTRAINT fk_cart_items_cart FOREIGN KEY (cart_id) REFERENCES carts(id) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
+CREATE TABLE IF NOT EXISTS stock_reservations (
+    item_id VARCHAR(255) NOT NULL,
+    holder_id VARCHAR(36) NOT NULL,
+    quantity INT NOT NULL,
+    expires_at DATETIME NOT NULL,
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (item_id, holder_id),
+    INDEX idx_stock_reservations_expires (expires_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
 -- ================================================================
 -- TABLES: ADDRESS MANAGEMENT
 -- ================================================================
@@ -133,11 +146,16 @@ CREATE TABLE IF NOT EXISTS addresses (
 -- TABLES: ORDER MANAGEMENT
 -- ================================================================
 
+CREATE TABLE IF NOT EXISTS number_sequences (
+    name VARCHAR(50) NOT NULL PRIMARY KEY,
+    next_value BIGINT NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
 CREATE TABLE IF NOT EXISTS orders (
     id VARCHAR(36) PRIMARY KEY,
     user_id VARCHAR(36),
     address_id VARCHAR(36) NULL,
-    order_number VARCHAR(50) NOT NULL UNIQUE,
+    order_number VARCHAR(50) NOT NULL,
     total_price DECIMAL(12,2) NOT NULL,
     payment_method ENUM('TRANSFER') NOT NULL,
     pickup_method ENUM('PICKUP', 'DELIVERY') NOT NULL,
@@ -150,7 +168,7 @@ CREATE TABLE IF NOT EXISTS orders (
     FOREIGN KEY (address_id) REFERENCES addresses(id) ON DELETE SET NULL,
     INDEX idx_user_id (user_id),
     INDEX idx_address_id (address_id),
-    INDEX idx_order_number (order_number),
+    UNIQUE KEY uk_orders_order_number (order_number),
     INDEX idx_status_payment (status_payment),
     INDEX idx_status_order (status_order)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
@@ -158,6 +176,7 @@ CREATE TABLE IF NOT EXISTS orders (
 CREATE TABLE IF NOT EXISTS order_items (
     id VARCHAR(36) PRIMARY KEY,
     order_id VARCHAR(36) NOT NULL,
+    line_no INT NOT NULL DEFAULT 0,
     item_id VARCHAR(36),
     quantity INT NOT NULL,
     unit_price DECIMAL(12,2) NOT NULL,
@@ -166,6 +185,7 @@ CREATE TABLE IF NOT EXISTS order_items (
     FOREIGN KEY (order_id) REFERENCES orders(id) ON DELETE CASCADE,
     FOREIGN KEY (item_id) REFERENCES items(id) ON DELETE SET NULL,
     INDEX idx_order_id (order_id),
+    INDEX idx_order_items_line (order_id, line_no),
     INDEX idx_item_id (item_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
@@ -211,6 +231,17 @@ CREATE TABLE IF NOT EXISTS shipments (
     INDEX idx_shipment_status (shipment_status)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    idempotency_key VARCHAR(64) NOT NULL,
+    user_id VARCHAR(36) NOT NULL,
+    status ENUM('PENDING', 'COMPLETED') NOT NULL DEFAULT 'PENDING',
+    response TEXT NULL,
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    completed_at DATETIME NULL,
+    PRIMARY KEY (idempotency_key),
+    INDEX idx_idempotency_keys_created (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
 -- ================================================================
 -- VERIFICATION
 -- ================================================================
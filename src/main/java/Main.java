@@ -2,6 +2,8 @@
 import java.util.Map;
 
 import com.combiphar.core.controller.AddressController;
+import com.combiphar.core.controller.AdminMaintenanceController;
+import com.combiphar.core.controller.AdminMetricsController;
 import com.combiphar.core.controller.AdminOrderController;
 import com.combiphar.core.controller.AdminPaymentController;
 import com.combiphar.core.controller.AdminShipmentController;
@@ -24,10 +26,17 @@ import com.combiphar.core.repository.ItemRepository;
 import com.combiphar.core.repository.UserRepository;
 import com.combiphar.core.service.AuthService;
 import com.combiphar.core.service.CartService;
+import com.combiphar.core.service.CartReaper;
+import com.combiphar.core.service.CartWriteBehind;
+import com.combiphar.core.service.CatalogCache;
 import com.combiphar.core.service.FileUploadService;
+import com.combiphar.core.service.IdempotencyKeys;
+import com.combiphar.core.service.OrderDetailService;
 import com.combiphar.core.service.OrderService;
 import com.combiphar.core.service.PaymentService;
 import com.combiphar.core.service.ShipmentService;
+import com.combiphar.core.service.ShippingTariffs;
+import com.combiphar.core.service.StockReservations;
 import com.mitchellbosecke.pebble.PebbleEngine;
 import com.mitchellbosecke.pebble.loader.ClasspathLoader;
 
@@ -43,6 +52,7 @@ import io.javalin.rendering.template.JavalinPebble;
 public class Main {
 
     private static final int PORT = 7070;
+    private static final int HISTORY_PAGE_SIZE = 10;
 
     public static void main(String[] args) {
         // Initialize repositories
@@ -79,12 +89,15 @@ public class Main {
         PaymentUploadController paymentUploadController = new PaymentUploadController(fileUploadService, orderService,
                 cartRepository);
         ShipmentService shipmentService = new ShipmentService();
+        OrderDetailService orderDetailService = new OrderDetailService(shipmentService);
         AdminShipmentController adminShipmentController = new AdminShipmentController(shipmentService);
         AdminPaymentController adminPaymentController = new AdminPaymentController();
         AdminOrderController adminOrderController = new AdminOrderController();
         AdminUserController adminUserController = new AdminUserController(userRepository);
         ReportController reportController = new ReportController();
         DashboardController dashboardController = new DashboardController();
+        AdminMetricsController adminMetricsController = new AdminMetricsController();
+        AdminMaintenanceController adminMaintenanceController = new AdminMaintenanceController();
 
         // Initialize Address controller
         AddressController addressController = new AddressController(addressRepository);
@@ -96,13 +109,32 @@ public class Main {
                 itemController, qcController, catalogController, cartController,
                 checkoutController, paymentController, paymentUploadController,
                 adminShipmentController, adminPaymentController, adminOrderController, adminUserController,
-                shipmentService, cartRepository, orderService, addressController, reportController,
-                dashboardController);
+                shipmentService, orderService, addressController, reportController,
+                dashboardController, adminMetricsController, adminMaintenanceController, orderDetailService);
 
         // Run DB migrations (best-effort). This will create carts/cart_items if
         // missing.
         com.combiphar.core.migration.MigrationRunner.runMigrations();
 
+        // Warm the catalog snapshot; browsing hits the database until it is ready.
+        CatalogCache.rebuild();
+        CatalogCache.start();
+
+        // Background flusher for queued cart saves
+        CartWriteBehind.start();
+
+        // Restore live stock holds and start expiring them
+        StockReservations.start();
+
+        // Scheduled removal of abandoned carts
+        CartReaper.start();
+
+        // Purge of expired checkout idempotency keys
+        IdempotencyKeys.start();
+
+        // Shipping rates from database/shipping_*.csv, reloaded when the files change
+        ShippingTariffs.start();
+
         app.start(PORT);
     }
 
@@ -186,11 +218,13 @@ public class Main {
             AdminOrderController adminOrderController,
             AdminUserController adminUserController,
             ShipmentService shipmentService,
-            CartRepository cartRepository,
             OrderService orderService,
             AddressController addressController,
             ReportController reportController,
-            DashboardController dashboardController) {
+            DashboardController dashboardController,
+            AdminMetricsController adminMetricsController,
+            AdminMaintenanceController adminMaintenanceController,
+            OrderDetailService orderDetailService) {
         // ====== PHASE 3: Customer Catalog Routes ======
         // Home / Catalog page - delegated to CatalogController
         app.get("/", catalogController::showCatalogPage);
@@ -199,31 +233,16 @@ public class Main {
         // Product detail page - delegated to CatalogController
         app.get("/product/{id}", catalogController::showProductDetail);
 
-        // Catalog search API endpoint
+        // Catalog search and typeahead API endpoints
         app.get("/api/catalog/search", catalogController::searchProducts);
+        app.get("/api/catalog/suggest", catalogController::suggestProducts);
 
         // Auth Routes
         app.post("/logout", authController::handleLogout);
         app.get("/login", authController::showLogin);
         app.post("/login", authController::handleLogin);
         // After successful login, sync session cart with persisted cart (non-blocking)
-        app.after("/login", ctx -> {
-            com.combiphar.core.model.User user = ctx.sessionAttribute("currentUser");
-            if (user != null) {
-                try {
-                    com.combiphar.core.model.Cart cart = ctx.sessionAttribute("cart");
-                    if (cart != null && !cart.isEmpty()) {
-                        cartRepository.saveCartForUser(user.getId(), cart);
-                    } else {
-                        cartRepository.findByUserId(user.getId()).ifPresent(loaded -> {
-                            ctx.sessionAttribute("cart", loaded);
-                        });
-                    }
-                } catch (Exception e) {
-                    System.err.println("[Main] failed to load persisted cart after login: " + e.getMessage());
-                }
-            }
-        });
+        app.after("/login", cartController::syncAfterLogin);
         app.get("/register", authController::showRegister);
         app.post("/register", authController::handleRegister);
         app.get("/logout", authController::handleLogout);
@@ -257,6 +276,7 @@ public class Main {
         app.post("/api/cart/update", cartController::updateCartItem);
         app.post("/api/cart/remove", cartController::removeFromCart);
         app.post("/api/cart/clear", cartController::clearCart);
+        app.post("/api/cart/batch", cartController::batchUpdate);
         app.put("/api/cart/update", cartController::updateCartItem);
         app.delete("/api/cart/remove", cartController::removeFromCart);
         // address-settings save endpoint removed
@@ -315,9 +335,14 @@ public class Main {
 
             if (user != null) {
                 String userId = ((com.combiphar.core.model.User) user).getId();
-                java.util.List<com.combiphar.core.model.OrderHistory> orderHistory = orderService
-                        .getOrderHistory(userId, shipmentService);
-                model.put("orderHistory", orderHistory);
+                int page = ctx.queryParamAsClass("page", Integer.class).getOrDefault(1);
+                com.combiphar.core.util.Pagination<com.combiphar.core.model.OrderHistory> orderHistory = orderService
+                        .getOrderHistoryPage(userId, page, HISTORY_PAGE_SIZE, shipmentService);
+                model.put("orderHistory", orderHistory.getItems());
+                model.put("currentPage", orderHistory.getCurrentPage());
+                model.put("totalPages", orderHistory.getTotalPages());
+                model.put("hasNext", orderHistory.hasNext());
+                model.put("hasPrevious", orderHistory.hasPrevious());
             }
 
             ctx.render("customer/history", model);
@@ -352,25 +377,21 @@ public class Main {
             model.put("userName", userName);
             model.put("userInitials", userInitials);
 
-            // Get order details
-            com.combiphar.core.repository.OrderRepository orderRepo = new com.combiphar.core.repository.OrderRepository();
-            orderRepo.findById(orderId).ifPresentOrElse(order -> {
-                model.put("order", order);
-
-                // Get payment info
-                com.combiphar.core.repository.PaymentRepository paymentRepo = new com.combiphar.core.repository.PaymentRepository();
-                paymentRepo.findByOrderId(orderId).ifPresent(payment -> {
-                    model.put("payment", payment);
-                });
-
-                // Get order items
-                com.combiphar.core.repository.OrderItemRepository itemRepo = new com.combiphar.core.repository.OrderItemRepository();
-                model.put("items", itemRepo.findByOrderId(orderId));
-
-                // Get shipment info for tracking
-                shipmentService.getShipmentByOrderId(orderId).ifPresent(shipment -> {
-                    model.put("shipment", shipment);
-                });
+            // Get order details; payment, items and shipment are loaded in parallel
+            String userId = currUserObj instanceof com.combiphar.core.model.User cu ? cu.getId() : null;
+            orderDetailService.findForUser(orderId, userId).ifPresentOrElse(detail -> {
+                model.put("order", detail.getOrder());
+                if (detail.getPayment() != null) {
+                    model.put("payment", detail.getPayment());
+                }
+                model.put("items", detail.getItems());
+                if (detail.getShipment() != null) {
+                    model.put("shipment", detail.getShipment());
+                }
+                // Parts that failed to load are shown as unavailable, not as missing
+                model.put("paymentUnavailable", detail.isPaymentUnavailable());
+                model.put("itemsUnavailable", detail.isItemsUnavailable());
+                model.put("shipmentUnavailable", detail.isShipmentUnavailable());
             }, () -> {
                 model.put("error", "Order tidak ditemukan");
             });
@@ -450,5 +471,12 @@ public class Main {
 
         // Admin reports page (English route) - delegated to controller
         app.get("/admin/reports", reportController::showReports);
+
+        // Admin runtime metrics (catalog cache counters)
+        app.get("/api/admin/metrics", adminMetricsController::getMetrics);
+
+        // Admin maintenance jobs run on demand
+        app.post("/api/admin/maintenance/reap-carts", adminMaintenanceController::reapCarts);
+        app.post("/api/admin/maintenance/reload-tariffs", adminMaintenanceController::reloadTariffs);
     }
 }
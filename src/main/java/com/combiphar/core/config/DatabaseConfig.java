@@ -1,6 +1,8 @@
 package com.combiphar.core.config;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 
 import javax.sql.DataSource;
@@ -46,6 +48,8 @@ public class DatabaseConfig {
         config.addDataSourceProperty("cachePrepStmts", "true");
         config.addDataSourceProperty("prepStmtCacheSize", "250");
         config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        // Send JDBC batches as multi-row statements, one round trip per batch
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
         config.setMaximumPoolSize(10);
 
         dataSource = new HikariDataSource(config);
@@ -59,6 +63,42 @@ public class DatabaseConfig {
         return dataSource.getConnection();
     }
 
+    /**
+     * Prepares a read-only query whose rows are streamed from the server one
+     * at a time instead of being read into memory. Connector/J does this for a
+     * forward-only statement with a fetch size of Integer.MIN_VALUE; other
+     * statements are unaffected, so they keep client-side prepared statements.
+     *
+     * The connection stays busy until the result set is closed, so callers
+     * that write each row to an HTTP client hold a pooled connection for as
+     * long as the slowest client takes to read the response.
+     */
+    public static PreparedStatement prepareStreaming(Connection conn, String sql) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        stmt.setFetchSize(Integer.MIN_VALUE);
+        return stmt;
+    }
+
+    /**
+     * Runs the work on one connection in one transaction. Commits when it
+     * returns and rolls back when it throws.
+     */
+    public static <T> T inTransaction(TransactionWork<T> work) throws SQLException {
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                T result = work.execute(conn);
+                conn.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
     private DatabaseConfig() {
         // Prevent instantiation
     }
@@ -0,0 +1,16 @@
+package com.combiphar.core.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Work run by {@link DatabaseConfig#inTransaction(TransactionWork)} on the
+ * transaction's connection.
+ *
+ * @param <T> result type
+ */
+@FunctionalInterface
+public interface TransactionWork<T> {
+
+    T execute(Connection conn) throws SQLException;
+}
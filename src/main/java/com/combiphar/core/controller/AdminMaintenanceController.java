@@ -0,0 +1,59 @@
+package com.combiphar.core.controller;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.combiphar.core.model.Role;
+import com.combiphar.core.model.User;
+import com.combiphar.core.service.CartReaper;
+import com.combiphar.core.service.ShippingTariffs;
+
+import io.javalin.http.Context;
+
+/**
+ * Controller untuk tugas pemeliharaan data yang dijalankan admin secara manual.
+ */
+public class AdminMaintenanceController extends BaseAdminController {
+
+    /**
+     * POST /api/admin/maintenance/reap-carts - Deletes abandoned carts now and
+     * reports the rows removed
+     */
+    public void reapCarts(Context ctx) {
+        User currentUser = ctx.sessionAttribute("currentUser");
+        if (currentUser == null || currentUser.getRole() != Role.ADMIN) {
+            ctx.status(403).json(Map.of("success", false, "message", "Akses ditolak"));
+            return;
+        }
+
+        Map<String, Object> report = CartReaper.reap();
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", report.get("error") == null);
+        response.put("message", report.get("error") == null
+                ? "Keranjang terbengkalai berhasil dibersihkan"
+                : "Pembersihan keranjang terhenti: " + report.get("error"));
+        response.put("data", report);
+        ctx.status(report.get("error") == null ? 200 : 500).json(response);
+    }
+
+    /**
+     * POST /api/admin/maintenance/reload-tariffs - Reads the shipping rate
+     * files now instead of waiting for the change check
+     */
+    public void reloadTariffs(Context ctx) {
+        User currentUser = ctx.sessionAttribute("currentUser");
+        if (currentUser == null || currentUser.getRole() != Role.ADMIN) {
+            ctx.status(403).json(Map.of("success", false, "message", "Akses ditolak"));
+            return;
+        }
+
+        Map<String, Object> report = ShippingTariffs.reload();
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", report.get("error") == null);
+        response.put("message", report.get("error") == null
+                ? "Tarif pengiriman berhasil dimuat ulang"
+                : "Tarif baru ditolak, tarif lama tetap dipakai: " + report.get("error"));
+        response.put("data", report);
+        ctx.status(report.get("error") == null ? 200 : 400).json(response);
+    }
+}
@@ -0,0 +1,44 @@
+package com.combiphar.core.controller;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.combiphar.core.model.Role;
+import com.combiphar.core.model.User;
+import com.combiphar.core.service.CartReaper;
+import com.combiphar.core.service.CartWriteBehind;
+import com.combiphar.core.service.CatalogCache;
+import com.combiphar.core.service.IdempotencyKeys;
+import com.combiphar.core.service.RenderedPageCache;
+import com.combiphar.core.service.ShippingTariffs;
+import com.combiphar.core.service.StockReservations;
+
+import io.javalin.http.Context;
+
+/**
+ * Controller untuk metrik runtime (cache katalog, dll) bagi admin.
+ */
+public class AdminMetricsController extends BaseAdminController {
+
+    /**
+     * GET /api/admin/metrics - Counters of in-memory caches
+     */
+    public void getMetrics(Context ctx) {
+        User currentUser = ctx.sessionAttribute("currentUser");
+        if (currentUser == null || currentUser.getRole() != Role.ADMIN) {
+            ctx.status(403).json(Map.of("success", false, "message", "Akses ditolak"));
+            return;
+        }
+
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("catalog", CatalogCache.getStats());
+        data.put("renderedPages", RenderedPageCache.getStats());
+        data.put("cartWriteBehind", CartWriteBehind.getStats());
+        data.put("stockReservations", StockReservations.getStats());
+        data.put("cartReaper", CartReaper.getStats());
+        data.put("idempotencyKeys", IdempotencyKeys.getStats());
+        data.put("shippingTariffs", ShippingTariffs.getStats());
+
+        ctx.json(Map.of("success", true, "data", data));
+    }
+}
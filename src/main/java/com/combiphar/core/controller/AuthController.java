@@ -10,6 +10,7 @@ import com.combiphar.core.model.Role;
 import com.combiphar.core.model.User;
 import com.combiphar.core.repository.AddressRepository;
 import com.combiphar.core.service.AuthService;
+import com.combiphar.core.service.CartWriteBehind;
 
 import io.javalin.http.Context;
 
@@ -140,6 +141,10 @@ public class AuthController {
      * GET /logout - Clears session and redirects to home.
      */
     public void handleLogout(Context ctx) {
+        User user = ctx.sessionAttribute("currentUser");
+        if (user != null) {
+            CartWriteBehind.flush(user.getId());
+        }
         ctx.req().getSession().invalidate();
         ctx.redirect("/");
     }
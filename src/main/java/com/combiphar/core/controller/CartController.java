@@ -1,12 +1,16 @@
 package com.combiphar.core.controller;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
 import com.combiphar.core.model.Cart;
+import com.combiphar.core.model.CartOperation;
 import com.combiphar.core.model.User;
 import com.combiphar.core.repository.CartRepository;
 import com.combiphar.core.service.CartService;
+import com.combiphar.core.service.CartWriteBehind;
 
 import io.javalin.http.Context;
 
@@ -58,9 +62,21 @@ public class CartController {
         });
     }
 
+    /**
+     * POST /api/cart/batch - Applies a JSON array of add/update/remove
+     * operations in one request; the cart is saved once.
+     */
+    public void batchUpdate(Context ctx) {
+        handleCartAction(ctx, cart -> {
+            cartService.applyBatch(cart, readOperations(ctx));
+            return Map.of("success", true, "message", "Keranjang berhasil diperbarui",
+                    "cartTotal", cart.getTotalPrice(), "cartItemCount", cart.getItemCount());
+        });
+    }
+
     public void clearCart(Context ctx) {
         handleCartAction(ctx, cart -> {
-            cart.clear();
+            cartService.clearCart(cart);
             return Map.of("success", true, "message", "Keranjang berhasil dikosongkan",
                     "cartItemCount", 0);
         });
@@ -69,7 +85,11 @@ public class CartController {
     private void handleCartAction(Context ctx, CartAction action) {
         try {
             Cart cart = getOrCreateCart(ctx);
-            ctx.json(action.execute(cart));
+            Map<String, Object> result;
+            synchronized (cart) {
+                result = action.execute(cart);
+            }
+            ctx.json(result);
             persistCart(ctx, cart);
         } catch (IllegalArgumentException e) {
             ctx.status(400).json(Map.of("success", false, "message", e.getMessage()));
@@ -78,6 +98,15 @@ public class CartController {
         }
     }
 
+    private List<CartOperation> readOperations(Context ctx) {
+        try {
+            CartOperation[] operations = ctx.bodyAsClass(CartOperation[].class);
+            return operations != null ? Arrays.asList(operations) : List.of();
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Format perubahan keranjang tidak valid");
+        }
+    }
+
     @FunctionalInterface
     private interface CartAction {
 
@@ -92,27 +121,72 @@ public class CartController {
 
         User user = ctx.sessionAttribute("currentUser");
         if (user != null) {
-            try {
-                cart = cartRepository.findByUserId(user.getId()).orElse(null);
-            } catch (Exception ignored) {
-            }
+            cart = loadPersistedCart(user);
         }
         if (cart == null) {
             cart = new Cart();
+            if (user != null) {
+                cart.setHolderId(user.getId());
+            }
         }
         ctx.sessionAttribute("cart", cart);
         return cart;
     }
 
-    private void persistCart(Context ctx, Cart cart) {
+    /**
+     * After login: a cart built as a guest replaces the persisted one and
+     * its holds move to the user, otherwise the persisted cart is loaded into
+     * the session. Either way, holds the user left on items outside the cart
+     * are released.
+     */
+    public void syncAfterLogin(Context ctx) {
         User user = ctx.sessionAttribute("currentUser");
         if (user == null) {
             return;
         }
+        Cart cart = ctx.sessionAttribute("cart");
+        if (cart != null && !cart.isEmpty()) {
+            cartService.assignToUser(cart, user.getId());
+            CartWriteBehind.enqueue(user.getId(), cart);
+            return;
+        }
+        Cart loaded = loadPersistedCart(user);
+        if (loaded != null) {
+            ctx.sessionAttribute("cart", loaded);
+        } else if (cart != null) {
+            cartService.assignToUser(cart, user.getId());
+        }
+    }
+
+    /**
+     * Loads the persisted cart with its items' current state in one query
+     * and attaches stale-price and stock warnings. Null if there is none or
+     * it cannot be read.
+     */
+    private Cart loadPersistedCart(User user) {
         try {
-            cartRepository.saveCartForUser(user.getId(), cart);
+            return cartRepository.loadForUser(user.getId())
+                    .map(loaded -> {
+                        Cart cart = loaded.getCart();
+                        cartService.releaseStaleHolds(cart);
+                        cart.setWarnings(cartService.checkCart(cart, loaded.getCurrentItems()));
+                        return cart;
+                    })
+                    .orElse(null);
         } catch (Exception e) {
-            throw new IllegalStateException("Gagal menyimpan keranjang", e);
+            System.err.println("[CartController] failed to load persisted cart: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Queues the cart for the write-behind flusher; saves for the same user
+     * are coalesced until the next flush.
+     */
+    private void persistCart(Context ctx, Cart cart) {
+        User user = ctx.sessionAttribute("currentUser");
+        if (user != null) {
+            CartWriteBehind.enqueue(user.getId(), cart);
         }
     }
 }
@@ -1,23 +1,49 @@
 package com.combiphar.core.controller;
 
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import com.combiphar.core.model.CatalogFacets;
+import com.combiphar.core.model.CatalogFilter;
+import com.combiphar.core.model.CatalogPage;
+import com.combiphar.core.model.CatalogSuggestion;
+import com.combiphar.core.model.Cart;
 import com.combiphar.core.model.Category;
 import com.combiphar.core.model.Item;
+import com.combiphar.core.model.ItemSummary;
+import com.combiphar.core.model.PriceBucket;
+import com.combiphar.core.service.CatalogCache;
+import com.combiphar.core.service.CatalogSnapshot;
 import com.combiphar.core.service.CategoryService;
 import com.combiphar.core.service.ItemService;
+import com.combiphar.core.service.RenderedPageCache;
+import com.combiphar.core.service.StockReservations;
+import com.combiphar.core.util.HttpCaching;
+import com.combiphar.core.util.JsonStreamWriter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
 
 import io.javalin.http.Context;
 
 /**
  * Controller for customer-facing catalog pages. Handles search, category
- * filtering, and product listing.
+ * filtering, and product listing. Stock is shown net of other carts' holds
+ * in {@link StockReservations}.
  */
 public class CatalogController {
 
+    private static final int PAGE_SIZE = 24;
+    private static final int MAX_API_PAGE_SIZE = 100;
+    private static final int SUGGEST_SIZE = 8;
+    private static final int MAX_SUGGEST_SIZE = 20;
+
     private final ItemService itemService;
     private final CategoryService categoryService;
 
@@ -32,24 +58,43 @@ public class CatalogController {
     public void showCatalogPage(Context ctx) {
         String searchQuery = ctx.queryParam("search");
         String categoryId = ctx.queryParam("category");
+        String cursor = ctx.queryParam("cursor");
+        CatalogFilter filter = CatalogFilter.fromParams(searchQuery, categoryId,
+                ctx.queryParam("condition"), ctx.queryParam("price"));
+
+        // Anonymous visitors share one rendering per (filters, cursor)
+        String cacheKey = anonymousPageKey(ctx,
+                "catalog|" + normalizeKeyPart(searchQuery) + "|" + normalizeKeyPart(filter.getCategoryId()) + "|"
+                        + normalizeKeyPart(filter.getCondition()) + "|" + filter.getPriceBucket() + "|"
+                        + normalizeKeyPart(cursor));
+        CatalogSnapshot snapshot = CatalogCache.peek();
+        long catalogVersion = pageVersion(snapshot);
+        applyCachePolicy(ctx, cacheKey != null);
 
         try {
-            // Get all categories for filter dropdown
-            List<Category> categories = categoryService.getAllCategories()
-                    .stream()
-                    .filter(c -> "AKTIF".equals(c.getStatus()))
-                    .collect(Collectors.toList());
+            // Search published items with filters, one page at a time. Served
+            // from the snapshot, so the validators can cover just these items
+            CatalogPage page = itemService.searchPublishedItems(filter, cursor, PAGE_SIZE);
+            List<ItemSummary> items = page.getItems();
+            List<String> itemIds = items.stream().map(ItemSummary::getId).collect(Collectors.toList());
+            if (cacheKey != null && snapshot != null && HttpCaching.notModified(ctx,
+                    "catalog-" + pageTag(snapshot, itemIds), lastChange(snapshot.getBuiltAt(), itemIds))) {
+                return;
+            }
+            if (serveCachedPage(ctx, cacheKey, catalogVersion)) {
+                return;
+            }
+            long holdVersion = StockReservations.getVersion(itemIds);
 
-            // Search published items with filters
-            List<Item> items = itemService.searchPublishedItems(searchQuery, categoryId);
+            // Get active categories for filter dropdown
+            List<Category> categories = categoryService.getActiveCategories();
+            CatalogFacets facets = itemService.getCatalogFacets(filter);
 
-            // Create category map for easy lookup
-            Map<String, String> categoryMap = new HashMap<>();
-            for (Category category : categories) {
-                categoryMap.put(category.getId(), category.getName());
-            }
+            // Category map for easy lookup
+            Map<String, String> categoryMap = categoryService.getCategoryNameMap();
 
             // Format items with category names for display
+            String holderId = holderIdOf(ctx);
             List<Map<String, Object>> formattedItems = items.stream()
                     .map(item -> {
                         Map<String, Object> itemMap = new HashMap<>();
@@ -58,10 +103,10 @@ public class CatalogController {
                         itemMap.put("categoryId", item.getCategoryId());
                         itemMap.put("categoryName", categoryMap.getOrDefault(item.getCategoryId(), "Lainnya"));
                         itemMap.put("price", item.getPrice());
-                        itemMap.put("stock", item.getStock());
+                        itemMap.put("stock", StockReservations.available(item.getId(), item.getStock(), holderId));
                         itemMap.put("condition", item.getCondition());
                         itemMap.put("conditionLabel", getConditionLabel(item.getCondition()));
-                        itemMap.put("description", item.getDescription());
+                        itemMap.put("description", item.getExcerpt());
                         itemMap.put("imageUrl", item.getImageUrl());
                         itemMap.put("eligibilityStatus", item.getEligibilityStatus());
                         return itemMap;
@@ -76,13 +121,22 @@ public class CatalogController {
             model.put("cart", ctx.sessionAttribute("cart"));
             model.put("items", formattedItems);
             model.put("categories", categories);
-            model.put("totalItems", formattedItems.size());
+            model.put("totalItems", page.getTotalItems());
+            model.put("isFirstPage", cursor == null || cursor.isBlank());
+            model.put("firstPageUrl", buildCatalogUrl(filter, null));
+            model.put("nextPageUrl", page.hasNext() ? buildCatalogUrl(filter, page.getNextCursor()) : null);
+            model.put("categoryFacets", buildCategoryFacets(filter, facets, categories));
+            model.put("conditionFacets", buildConditionFacets(filter, facets));
+            model.put("priceFacets", buildPriceFacets(filter, facets));
+            model.put("currentCondition", filter.getCondition() != null ? filter.getCondition() : "");
+            model.put("currentPrice", filter.getPriceBucket() != null ? filter.getPriceBucket().name() : "");
             model.put("searchQuery", searchQuery != null ? searchQuery : "");
             model.put("currentCategory", categoryId != null ? categoryId : "");
             model.put("currentCategoryName",
                     categoryId != null ? categoryMap.getOrDefault(categoryId, "Semua Kategori") : "Semua Kategori");
 
             ctx.render("customer/catalog", model);
+            cacheRenderedPage(ctx, cacheKey, catalogVersion, itemIds, holdVersion);
         } catch (Exception e) {
             e.printStackTrace();
             Map<String, Object> errorModel = new HashMap<>();
@@ -91,6 +145,9 @@ public class CatalogController {
             errorModel.put("currentUser", ctx.sessionAttribute("currentUser"));
             errorModel.put("items", List.of());
             errorModel.put("categories", List.of());
+            errorModel.put("categoryFacets", List.of());
+            errorModel.put("conditionFacets", List.of());
+            errorModel.put("priceFacets", List.of());
             errorModel.put("totalItems", 0);
             errorModel.put("searchQuery", "");
             errorModel.put("currentCategory", "");
@@ -106,22 +163,29 @@ public class CatalogController {
     public void showProductDetail(Context ctx) {
         String productId = ctx.pathParam("id");
 
-        try {
-            Item item = itemService.getItemById(productId);
+        String cacheKey = anonymousPageKey(ctx, "product|" + productId);
+        CatalogSnapshot snapshot = CatalogCache.peek();
+        long catalogVersion = pageVersion(snapshot);
+        applyCachePolicy(ctx, cacheKey != null);
+        Item published = snapshot != null ? snapshot.getPublishedItem(productId) : null;
+        if (cacheKey != null && published != null
+                && HttpCaching.notModified(ctx, productEtag(snapshot, published),
+                        lastChange(published.getUpdatedAt(), List.of(productId)))) {
+            return;
+        }
+        if (serveCachedPage(ctx, cacheKey, catalogVersion)) {
+            return;
+        }
 
-            // Check if item is published and eligible
-            if (!Boolean.TRUE.equals(item.getIsPublished()) || !"ELIGIBLE".equals(item.getEligibilityStatus())) {
-                ctx.redirect("/catalog");
-                return;
-            }
+        try {
+            // Only published and eligible items are visible
+            Item item = itemService.getPublishedItemById(productId);
+            List<String> itemIds = List.of(item.getId());
+            long holdVersion = StockReservations.getVersion(itemIds);
 
             // Get category name
-            String categoryName = "Lainnya";
-            try {
-                Category category = categoryService.getCategoryById(item.getCategoryId());
-                categoryName = category.getName();
-            } catch (Exception ignored) {
-            }
+            String categoryName = categoryService.getCategoryNameMap()
+                    .getOrDefault(item.getCategoryId(), "Lainnya");
 
             // Build product map
             Map<String, Object> product = new HashMap<>();
@@ -130,7 +194,7 @@ public class CatalogController {
             product.put("categoryId", item.getCategoryId());
             product.put("categoryName", categoryName);
             product.put("price", item.getPrice());
-            product.put("stock", item.getStock());
+            product.put("stock", StockReservations.available(item.getId(), item.getStock(), holderIdOf(ctx)));
             product.put("condition", item.getCondition());
             product.put("conditionLabel", getConditionLabel(item.getCondition()));
             product.put("conditionGrade", getConditionGrade(item.getCondition()));
@@ -146,6 +210,7 @@ public class CatalogController {
             model.put("product", product);
 
             ctx.render("customer/product-detail", model);
+            cacheRenderedPage(ctx, cacheKey, catalogVersion, itemIds, holdVersion);
         } catch (Exception e) {
             e.printStackTrace();
             ctx.redirect("/catalog");
@@ -153,40 +218,58 @@ public class CatalogController {
     }
 
     /**
-     * GET /api/catalog/search - API endpoint for searching products (AJAX)
+     * GET /api/catalog/search - API endpoint for searching products (AJAX).
+     * Paged by keyset: pass the returned "next" value as ?cursor= to fetch the
+     * following page; "next" is null on the last page. Accepts the condition
+     * and price facets and returns counts per facet value under "facets".
      */
     public void searchProducts(Context ctx) {
-        String searchQuery = ctx.queryParam("q");
-        String categoryId = ctx.queryParam("category");
+        CatalogFilter filter = CatalogFilter.fromParams(ctx.queryParam("q"), ctx.queryParam("category"),
+                ctx.queryParam("condition"), ctx.queryParam("price"));
+        String cursor = ctx.queryParam("cursor");
+        int limit = parseLimit(ctx.queryParam("limit"), PAGE_SIZE);
+
+        // Results do not depend on the session, so validators apply to everyone
+        CatalogSnapshot snapshot = CatalogCache.peek();
+        ctx.header("Cache-Control", HttpCaching.PUBLIC_REVALIDATE);
 
         try {
-            List<Category> categories = categoryService.getAllCategories();
-            Map<String, String> categoryMap = new HashMap<>();
-            for (Category category : categories) {
-                categoryMap.put(category.getId(), category.getName());
+            CatalogPage page = itemService.searchPublishedItems(filter, cursor, limit);
+            List<ItemSummary> items = page.getItems();
+            List<String> itemIds = items.stream().map(ItemSummary::getId).collect(Collectors.toList());
+            if (snapshot != null && HttpCaching.notModified(ctx,
+                    "search-" + pageTag(snapshot, itemIds), lastChange(snapshot.getBuiltAt(), itemIds))) {
+                return;
             }
 
-            List<Item> items = itemService.searchPublishedItems(searchQuery, categoryId);
-
-            List<Map<String, Object>> formattedItems = items.stream()
-                    .map(item -> {
-                        Map<String, Object> itemMap = new HashMap<>();
-                        itemMap.put("id", item.getId());
-                        itemMap.put("name", item.getName());
-                        itemMap.put("categoryName", categoryMap.getOrDefault(item.getCategoryId(), "Lainnya"));
-                        itemMap.put("price", item.getPrice());
-                        itemMap.put("stock", item.getStock());
-                        itemMap.put("condition", item.getCondition());
-                        itemMap.put("conditionLabel", getConditionLabel(item.getCondition()));
-                        itemMap.put("imageUrl", item.getImageUrl());
-                        return itemMap;
-                    })
-                    .collect(Collectors.toList());
+            Map<String, String> categoryMap = categoryService.getCategoryNameMap();
+            CatalogFacets facets = itemService.getCatalogFacets(filter);
 
-            ctx.json(Map.of(
-                    "success", true,
-                    "data", formattedItems,
-                    "total", formattedItems.size()));
+            JsonStreamWriter.writeSuccess(ctx, out -> {
+                for (ItemSummary item : items) {
+                    JsonGenerator json = out.element();
+                    json.writeStartObject();
+                    json.writeStringField("id", item.getId());
+                    json.writeStringField("name", item.getName());
+                    json.writeStringField("categoryName", categoryMap.getOrDefault(item.getCategoryId(), "Lainnya"));
+                    json.writeObjectField("price", item.getPrice());
+                    json.writeNumberField("stock", StockReservations.available(item.getId(), item.getStock(), null));
+                    json.writeStringField("condition", item.getCondition());
+                    json.writeStringField("conditionLabel", getConditionLabel(item.getCondition()));
+                    json.writeStringField("imageUrl", item.getImageUrl());
+                    json.writeEndObject();
+                }
+            }, json -> {
+                json.writeNumberField("total", page.getTotalItems());
+                json.writeStringField("next", page.getNextCursor());
+                if (facets != null) {
+                    json.writeObjectFieldStart("facets");
+                    json.writeObjectField("category", facets.getCategories());
+                    json.writeObjectField("condition", facets.getConditions());
+                    json.writeObjectField("price", facets.getPrices());
+                    json.writeEndObject();
+                }
+            });
         } catch (Exception e) {
             ctx.status(500).json(Map.of(
                     "success", false,
@@ -194,6 +277,232 @@ public class CatalogController {
         }
     }
 
+    /**
+     * GET /api/catalog/suggest - Typeahead completions for the search box,
+     * ranked by units sold. Answered from memory, never from the database.
+     */
+    public void suggestProducts(Context ctx) {
+        int limit = Math.min(MAX_SUGGEST_SIZE, parseLimit(ctx.queryParam("limit"), SUGGEST_SIZE));
+
+        CatalogSnapshot snapshot = CatalogCache.peek();
+        ctx.header("Cache-Control", HttpCaching.PUBLIC_REVALIDATE);
+        if (snapshot != null
+                && HttpCaching.notModified(ctx, "suggest-" + snapshot.getTag(), snapshot.getBuiltAt())) {
+            return;
+        }
+
+        List<CatalogSuggestion> suggestions = itemService.suggest(ctx.queryParam("q"), limit);
+        ctx.json(Map.of(
+                "success", true,
+                "data", suggestions));
+    }
+
+    /**
+     * Helper method to get the rendered-page cache key, or null when the page
+     * depends on the session (logged-in user or cart in the navbar)
+     */
+    private String anonymousPageKey(Context ctx, String key) {
+        if (ctx.sessionAttribute("currentUser") != null || ctx.sessionAttribute("cart") != null) {
+            RenderedPageCache.recordBypass();
+            return null;
+        }
+        return key;
+    }
+
+    /**
+     * Helper method to set Cache-Control for catalog HTML. Anonymous pages may
+     * be stored by shared caches; pages with a session (navbar shows the user
+     * and cart) are private. Both must revalidate with the ETag.
+     */
+    private void applyCachePolicy(Context ctx, boolean anonymous) {
+        ctx.header("Cache-Control", anonymous ? HttpCaching.PUBLIC_REVALIDATE : HttpCaching.PRIVATE_REVALIDATE);
+        ctx.header("Vary", "Cookie");
+    }
+
+    /**
+     * Helper method to build the product page ETag from the item's
+     * updated_at, its category name and its free stock, which the page also
+     * shows
+     */
+    private String productEtag(CatalogSnapshot snapshot, Item item) {
+        String categoryName = snapshot.getCategoryNames().getOrDefault(item.getCategoryId(), "Lainnya");
+        String modified = item.getUpdatedAt() != null
+                ? Long.toString(Timestamp.valueOf(item.getUpdatedAt()).getTime())
+                : "v" + snapshot.getTag();
+        int available = StockReservations.available(item.getId(), item.getStock(), null);
+        return "product-" + item.getId() + "-" + modified + "-" + Integer.toHexString(categoryName.hashCode())
+                + "-s" + available;
+    }
+
+    /**
+     * Helper method to get the rendered-page cache version: the snapshot
+     * version, or -1 without a snapshot. Holds are checked per page by the
+     * cache itself
+     */
+    private long pageVersion(CatalogSnapshot snapshot) {
+        return snapshot != null ? snapshot.getVersion() : -1;
+    }
+
+    /**
+     * Helper method to build the ETag part of pages that show stock: the
+     * snapshot tag and the hold version of the items on the page
+     */
+    private String pageTag(CatalogSnapshot snapshot, List<String> itemIds) {
+        return snapshot.getTag() + "-" + StockReservations.getVersion(itemIds);
+    }
+
+    /**
+     * Helper method to get the Last-Modified time of a page that also shows
+     * the stock holds of its items
+     */
+    private LocalDateTime lastChange(LocalDateTime modified, List<String> itemIds) {
+        LocalDateTime holds = StockReservations.getLastChange(itemIds);
+        if (holds == null) {
+            return modified;
+        }
+        return modified == null || holds.isAfter(modified) ? holds : modified;
+    }
+
+    /**
+     * Helper method to get the holder ID of the session cart, whose own holds
+     * still count as available to it
+     */
+    private String holderIdOf(Context ctx) {
+        Cart cart = ctx.sessionAttribute("cart");
+        return cart != null ? cart.getHolderId() : null;
+    }
+
+    /**
+     * Helper method to answer from the rendered-page cache
+     */
+    private boolean serveCachedPage(Context ctx, String cacheKey, long catalogVersion) {
+        if (cacheKey == null || catalogVersion < 0) {
+            return false;
+        }
+        String html = RenderedPageCache.get(cacheKey, catalogVersion);
+        if (html == null) {
+            return false;
+        }
+        ctx.html(html);
+        return true;
+    }
+
+    /**
+     * Helper method to store the body just rendered into the page cache
+     */
+    private void cacheRenderedPage(Context ctx, String cacheKey, long catalogVersion, List<String> itemIds,
+            long holdVersion) {
+        if (cacheKey != null && catalogVersion >= 0) {
+            RenderedPageCache.put(cacheKey, catalogVersion, ctx.result(), itemIds, holdVersion);
+        }
+    }
+
+    /**
+     * Helper method to normalize a query parameter for use in a cache key
+     */
+    private String normalizeKeyPart(String value) {
+        return value == null ? "" : value.trim().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Helper method to parse the API page size, clamped to a sane range
+     */
+    private int parseLimit(String limitParam, int defaultLimit) {
+        if (limitParam == null || limitParam.isBlank()) {
+            return defaultLimit;
+        }
+        try {
+            return Math.max(1, Math.min(MAX_API_PAGE_SIZE, Integer.parseInt(limitParam.trim())));
+        } catch (NumberFormatException e) {
+            return defaultLimit;
+        }
+    }
+
+    /**
+     * Helper method to build a /catalog URL that keeps the current filters
+     */
+    private String buildCatalogUrl(CatalogFilter filter, String cursor) {
+        StringBuilder url = new StringBuilder("/catalog");
+        appendParam(url, "category", filter.getCategoryId());
+        appendParam(url, "search", filter.getSearchQuery());
+        appendParam(url, "condition", filter.getCondition());
+        appendParam(url, "price", filter.getPriceBucket() != null ? filter.getPriceBucket().name() : null);
+        appendParam(url, "cursor", cursor);
+        return url.toString();
+    }
+
+    private void appendParam(StringBuilder url, String name, String value) {
+        if (value == null || value.isBlank()) {
+            return;
+        }
+        url.append(url.indexOf("?") < 0 ? '?' : '&')
+                .append(name).append('=').append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Helper method to build category facet links ("Semua Produk" first)
+     */
+    private List<Map<String, Object>> buildCategoryFacets(CatalogFilter filter, CatalogFacets facets,
+            List<Category> categories) {
+        List<Map<String, Object>> links = new ArrayList<>();
+        links.add(facetLink("Semua Produk", null, filter.getCategoryId() == null,
+                buildCatalogUrl(new CatalogFilter(filter.getSearchQuery(), null, filter.getCondition(),
+                        filter.getPriceBucket()), null)));
+        for (Category category : categories) {
+            links.add(facetLink(category.getName(),
+                    facets != null ? facets.getCategoryCount(category.getId()) : null,
+                    category.getId().equals(filter.getCategoryId()),
+                    buildCatalogUrl(new CatalogFilter(filter.getSearchQuery(), category.getId(),
+                            filter.getCondition(), filter.getPriceBucket()), null)));
+        }
+        return links;
+    }
+
+    /**
+     * Helper method to build condition facet links ("Semua Kondisi" first)
+     */
+    private List<Map<String, Object>> buildConditionFacets(CatalogFilter filter, CatalogFacets facets) {
+        List<Map<String, Object>> links = new ArrayList<>();
+        links.add(facetLink("Semua Kondisi", null, filter.getCondition() == null,
+                buildCatalogUrl(new CatalogFilter(filter.getSearchQuery(), filter.getCategoryId(), null,
+                        filter.getPriceBucket()), null)));
+        for (String condition : CatalogFilter.CONDITIONS) {
+            links.add(facetLink(getConditionLabel(condition),
+                    facets != null ? facets.getConditionCount(condition) : null,
+                    condition.equals(filter.getCondition()),
+                    buildCatalogUrl(new CatalogFilter(filter.getSearchQuery(), filter.getCategoryId(), condition,
+                            filter.getPriceBucket()), null)));
+        }
+        return links;
+    }
+
+    /**
+     * Helper method to build price facet links ("Semua Harga" first)
+     */
+    private List<Map<String, Object>> buildPriceFacets(CatalogFilter filter, CatalogFacets facets) {
+        List<Map<String, Object>> links = new ArrayList<>();
+        links.add(facetLink("Semua Harga", null, filter.getPriceBucket() == null,
+                buildCatalogUrl(new CatalogFilter(filter.getSearchQuery(), filter.getCategoryId(),
+                        filter.getCondition(), null), null)));
+        for (PriceBucket bucket : PriceBucket.values()) {
+            links.add(facetLink(bucket.getDisplayName(),
+                    facets != null ? facets.getPriceCount(bucket) : null,
+                    bucket == filter.getPriceBucket(),
+                    buildCatalogUrl(new CatalogFilter(filter.getSearchQuery(), filter.getCategoryId(),
+                            filter.getCondition(), bucket), null)));
+        }
+        return links;
+    }
+
+    private Map<String, Object> facetLink(String label, Integer count, boolean active, String url) {
+        Map<String, Object> link = new HashMap<>();
+        link.put("label", label);
+        link.put("count", count);
+        link.put("active", active);
+        link.put("url", url);
+        return link;
+    }
+
     /**
      * Helper method to get human-readable condition label
      */
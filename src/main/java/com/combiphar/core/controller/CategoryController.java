@@ -12,8 +12,10 @@ import com.combiphar.core.model.User;
 import com.combiphar.core.service.CategoryService;
 import com.combiphar.core.service.ItemService;
 import com.combiphar.core.util.CsvUtils;
+import com.combiphar.core.util.JsonStreamWriter;
 import com.combiphar.core.util.Pagination;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import io.javalin.http.Context;
 import io.javalin.http.UploadedFile;
 
@@ -109,37 +111,30 @@ public class CategoryController {
     }
 
     /**
-     * GET /api/admin/categories - Get all categories (API)
+     * GET /api/admin/categories - Get all categories (API), streamed row by
+     * row
      */
     public void getAllCategories(Context ctx) {
         try {
-            List<Category> categories = categoryService.getAllCategories();
-
-            // Convert to simple maps for JSON response
             DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd MMM yyyy");
-            List<Map<String, Object>> categoryMaps = new ArrayList<>();
 
-            for (Category category : categories) {
-                Map<String, Object> categoryMap = new HashMap<>();
-                categoryMap.put("id", category.getId());
-                categoryMap.put("name", category.getName());
-                categoryMap.put("description", category.getDescription());
-                categoryMap.put("status", category.getStatus());
+            JsonStreamWriter.writeSuccess(ctx, out -> categoryService.forEachCategory(category -> {
+                JsonGenerator json = out.element();
+                json.writeStartObject();
+                json.writeStringField("id", category.getId());
+                json.writeStringField("name", category.getName());
+                json.writeStringField("description", category.getDescription());
+                json.writeStringField("status", category.getStatus());
 
                 if (category.getUpdatedAt() != null) {
-                    categoryMap.put("updatedAt", category.getUpdatedAt().format(formatter));
+                    json.writeStringField("updatedAt", category.getUpdatedAt().format(formatter));
                 } else if (category.getCreatedAt() != null) {
-                    categoryMap.put("updatedAt", category.getCreatedAt().format(formatter));
+                    json.writeStringField("updatedAt", category.getCreatedAt().format(formatter));
                 } else {
-                    categoryMap.put("updatedAt", "N/A");
+                    json.writeStringField("updatedAt", "N/A");
                 }
-
-                categoryMaps.add(categoryMap);
-            }
-
-            ctx.json(Map.of(
-                    "success", true,
-                    "data", categoryMaps));
+                json.writeEndObject();
+            }));
         } catch (Exception e) {
             ctx.status(500).json(Map.of(
                     "success", false,
@@ -3,6 +3,7 @@ package com.combiphar.core.controller;
 import java.math.BigDecimal;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -10,11 +11,15 @@ import java.util.Objects;
 
 import com.combiphar.core.model.Address;
 import com.combiphar.core.model.Cart;
+import com.combiphar.core.model.CartWarning;
 import com.combiphar.core.model.OrderSummary;
 import com.combiphar.core.model.ShippingAddress;
 import com.combiphar.core.model.User;
 import com.combiphar.core.repository.AddressRepository;
+import com.combiphar.core.service.CartWriteBehind;
+import com.combiphar.core.service.IdempotencyKeys;
 import com.combiphar.core.service.OrderService;
+import com.combiphar.core.service.ShippingTariffs;
 
 import io.javalin.http.Context;
 
@@ -43,12 +48,37 @@ public class CheckoutController {
             ctx.redirect("/login");
             return;
         }
+        List<CartWarning> warnings;
+        synchronized (cart) {
+            warnings = orderService.refreshCartForCheckout(cart);
+        }
+        CartWriteBehind.enqueue(user.getId(), cart);
+        CartWriteBehind.flush(user.getId());
+        if (warnings.stream().anyMatch(CartWarning::isBlocking)) {
+            ctx.redirect("/cart");
+            return;
+        }
+
+        // One key per checkout; the payment upload sends it back so a retry cannot order twice
+        if (ctx.sessionAttribute("checkoutKey") == null) {
+            ctx.sessionAttribute("checkoutKey", IdempotencyKeys.newKey());
+        }
 
-        Map<String, BigDecimal> couriers = orderService.getAvailableCouriers();
+        Map<String, Object> model = new HashMap<>();
+        loadAddresses(model, user.getId());
+
+        // Rates depend on the destination; price for the address the form starts on
+        String postalCode = null;
+        if (model.get("selectedAddress") instanceof Address selected) {
+            postalCode = selected.getPostalCode();
+        } else if (model.get("addresses") instanceof List<?> addresses && !addresses.isEmpty()
+                && addresses.get(0) instanceof Address first) {
+            postalCode = first.getPostalCode();
+        }
+        Map<String, BigDecimal> couriers = orderService.getAvailableCouriers(postalCode, cart.getTotalQuantity());
         String defaultCourier = couriers.containsKey("Premium Logistics (2-3 hari)")
                 ? "Premium Logistics (2-3 hari)" : couriers.keySet().stream().findFirst().orElse("");
 
-        Map<String, Object> model = new HashMap<>();
         model.put("title", "Checkout Pesanan");
         model.put("currentUser", user);
         model.put("activePage", "checkout");
@@ -56,24 +86,44 @@ public class CheckoutController {
         model.put("courierOptions", couriers.entrySet().stream()
                 .map(e -> Map.of("name", e.getKey(), "rate", e.getValue())).toList());
         model.put("selectedCourier", defaultCourier);
-        model.put("orderSummary", orderService.calculateOrderSummary(cart, defaultCourier));
-        loadAddresses(model, user.getId());
+        model.put("orderSummary", orderService.calculateOrderSummary(cart, defaultCourier, postalCode));
+        model.put("error", ctx.queryParam("error"));
         ctx.render("customer/checkout", model);
     }
 
+    /**
+     * POST /api/checkout/calculate - Prices the cart for the courier and the
+     * optional addressId, and lists the couriers serving that address.
+     */
     public void calculateOrder(Context ctx) {
         Cart cart = ctx.sessionAttribute("cart");
+        User user = ctx.sessionAttribute("currentUser");
         if (cart == null || cart.isEmpty()) {
             ctx.status(400).json(Map.of("success", false, "message", "Keranjang belanja kosong"));
             return;
         }
+        String postalCode = null;
         try {
-            OrderSummary summary = orderService.calculateOrderSummary(cart, ctx.formParam("courier"));
-            ctx.json(Map.of("success", true, "subtotal", summary.getSubtotal(),
-                    "shippingCost", summary.getShippingCost(), "totalPrice", summary.getTotalPrice(),
-                    "courierName", summary.getCourierName()));
+            String addressId = ctx.formParam("addressId");
+            if (addressId != null && !addressId.isBlank()) {
+                postalCode = findOwnAddress(user, addressId).getPostalCode();
+            }
+            List<String> available = List.copyOf(
+                    orderService.getAvailableCouriers(postalCode, cart.getTotalQuantity()).keySet());
+            try {
+                OrderSummary summary = orderService.calculateOrderSummary(cart, ctx.formParam("courier"), postalCode);
+                ctx.json(Map.of("success", true, "subtotal", summary.getSubtotal(),
+                        "shippingCost", summary.getShippingCost(), "totalPrice", summary.getTotalPrice(),
+                        "courierName", summary.getCourierName(), "shippingZone", ShippingTariffs.zoneOf(postalCode),
+                        "availableCouriers", available));
+            } catch (IllegalArgumentException e) {
+                ctx.status(400).json(Map.of("success", false, "message", e.getMessage(),
+                        "availableCouriers", available));
+            }
         } catch (IllegalArgumentException e) {
             ctx.status(400).json(Map.of("success", false, "message", e.getMessage()));
+        } catch (SQLException e) {
+            ctx.status(500).json(Map.of("success", false, "message", "Gagal memuat alamat"));
         }
     }
 
@@ -91,9 +141,7 @@ public class CheckoutController {
         }
 
         try {
-            Address address = addressRepository.findById(addressId)
-                    .filter(a -> a.getUserId().equals(user.getId()))
-                    .orElseThrow(() -> new IllegalArgumentException("Alamat tidak valid"));
+            Address address = findOwnAddress(user, addressId);
 
             ctx.sessionAttribute("shippingAddress", new ShippingAddress(
                     address.getRecipientName(), address.getFullAddress(),
@@ -104,12 +152,24 @@ public class CheckoutController {
             if (courier != null && !courier.isBlank()) {
                 ctx.sessionAttribute("selectedCourier", courier);
             }
+            // Price shipping for this address now; an unserved courier sends the customer back
+            Cart cart = ctx.sessionAttribute("cart");
+            if (cart != null && !cart.isEmpty()) {
+                ctx.sessionAttribute("orderSummary", orderService.calculateOrderSummary(cart,
+                        ctx.sessionAttribute("selectedCourier"), address.getPostalCode()));
+            }
             ctx.redirect("/payment");
         } catch (Exception e) {
             redirectError(ctx, "/checkout", e.getMessage());
         }
     }
 
+    private Address findOwnAddress(User user, String addressId) throws SQLException {
+        return addressRepository.findById(addressId)
+                .filter(a -> user != null && a.getUserId().equals(user.getId()))
+                .orElseThrow(() -> new IllegalArgumentException("Alamat tidak valid"));
+    }
+
     private void loadAddresses(Map<String, Object> model, String userId) {
         try {
             List<Address> addresses = addressRepository.findByUserId(userId);
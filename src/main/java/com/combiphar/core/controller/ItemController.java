@@ -12,14 +12,17 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.function.IntUnaryOperator;
 
 import com.combiphar.core.model.Category;
 import com.combiphar.core.model.Item;
+import com.combiphar.core.model.ItemSummary;
 import com.combiphar.core.model.User;
 import com.combiphar.core.service.CategoryService;
 import com.combiphar.core.service.ItemService;
 import com.combiphar.core.service.QualityCheckService;
 import com.combiphar.core.util.CsvUtils;
+import com.combiphar.core.util.JsonStreamWriter;
 import com.combiphar.core.util.Pagination;
 
 import io.javalin.http.Context;
@@ -58,7 +61,9 @@ public class ItemController {
             String categoryFilter = ctx.queryParam("categoryId");
             int page = ctx.queryParamAsClass("page", Integer.class).getOrDefault(1);
 
-            List<Item> items = itemService.getAllItems();
+            // Listing summaries: the grid and stats never show full descriptions
+            List<ItemSummary> allItems = itemService.getAllItemSummaries();
+            List<ItemSummary> items = allItems;
             List<Category> categories = categoryService.getAllCategories();
 
             // Apply filters
@@ -94,9 +99,7 @@ public class ItemController {
                         .collect(java.util.stream.Collectors.toList());
             }
 
-            // Get all items for stats (before filtering)
-            List<Item> allItems = itemService.getAllItems();
-
+            // Stats use all items (before filtering)
             // Calculate new stats for the UI
             long totalSKU = allItems.size();
 
@@ -137,7 +140,7 @@ public class ItemController {
 
             // Format items with category names
             List<Map<String, Object>> formattedItems = new java.util.ArrayList<>();
-            for (Item item : items) {
+            for (ItemSummary item : items) {
                 Map<String, Object> itemMap = new HashMap<>();
                 itemMap.put("id", item.getId());
                 itemMap.put("name", item.getName());
@@ -146,7 +149,7 @@ public class ItemController {
                 itemMap.put("price", item.getPrice());
                 itemMap.put("stock", item.getStock());
                 itemMap.put("condition", item.getCondition());
-                itemMap.put("description", item.getDescription());
+                itemMap.put("description", item.getExcerpt());
                 itemMap.put("imageUrl", item.getImageUrl());
                 itemMap.put("eligibilityStatus", item.getEligibilityStatus());
                 itemMap.put("isPublished", item.getIsPublished());
@@ -227,26 +230,15 @@ public class ItemController {
     }
 
     /**
-     * GET /api/admin/items - Get all items (API)
+     * GET /api/admin/items - Get all items (API), streamed row by row
      */
     public void getAllItems(Context ctx) {
         try {
             String categoryId = ctx.queryParam("categoryId");
             String status = ctx.queryParam("status");
 
-            List<Item> items;
-
-            if (categoryId != null) {
-                items = itemService.getItemsByCategory(categoryId);
-            } else if (status != null) {
-                items = itemService.getItemsByEligibilityStatus(status);
-            } else {
-                items = itemService.getAllItems();
-            }
-
-            ctx.json(Map.of(
-                    "success", true,
-                    "data", items));
+            JsonStreamWriter.writeSuccess(ctx,
+                    out -> itemService.forEachItem(categoryId, status, out::value));
         } catch (Exception e) {
             ctx.status(500).json(Map.of(
                     "success", false,
@@ -273,15 +265,12 @@ public class ItemController {
     }
 
     /**
-     * GET /api/items/published - Get published items for customer catalog (API)
+     * GET /api/items/published - Get published items for customer catalog
+     * (API), streamed row by row
      */
     public void getPublishedItems(Context ctx) {
         try {
-            List<Item> items = itemService.getPublishedItems();
-
-            ctx.json(Map.of(
-                    "success", true,
-                    "data", items));
+            JsonStreamWriter.writeSuccess(ctx, out -> itemService.forEachPublishedItem(out::value));
         } catch (Exception e) {
             ctx.status(500).json(Map.of(
                     "success", false,
@@ -490,26 +479,17 @@ public class ItemController {
             String action = ctx.bodyAsClass(Map.class).get("action").toString();
             int quantity = Integer.parseInt(ctx.bodyAsClass(Map.class).get("quantity").toString());
 
-            // Get current item
-            Item item = itemService.getItemById(id);
-            if (item == null) {
-                ctx.status(404).json(Map.of(
-                        "success", false,
-                        "message", "Produk tidak ditemukan"));
-                return;
-            }
-
-            int newStock;
+            IntUnaryOperator change;
             switch (action) {
                 case "add":
-                    newStock = item.getStock() + quantity;
+                    change = stock -> stock + quantity;
                     break;
                 case "reduce":
                 case "remove":
-                    newStock = Math.max(0, item.getStock() - quantity);
+                    change = stock -> Math.max(0, stock - quantity);
                     break;
                 case "set":
-                    newStock = quantity;
+                    change = stock -> quantity;
                     break;
                 default:
                     ctx.status(400).json(Map.of(
@@ -518,18 +498,18 @@ public class ItemController {
                     return;
             }
 
-            boolean updated = itemService.updateStock(id, newStock);
-
-            if (updated) {
-                ctx.json(Map.of(
-                        "success", true,
-                        "message",
-                        String.format("Stok berhasil diupdate dari %d menjadi %d unit", item.getStock(), newStock)));
-            } else {
-                ctx.status(400).json(Map.of(
+            // Read and write happen in one transaction with the row locked
+            int[] stock = itemService.changeStock(id, change);
+            if (stock == null) {
+                ctx.status(404).json(Map.of(
                         "success", false,
-                        "message", "Gagal mengupdate stok"));
+                        "message", "Produk tidak ditemukan"));
+                return;
             }
+            ctx.json(Map.of(
+                    "success", true,
+                    "message",
+                    String.format("Stok berhasil diupdate dari %d menjadi %d unit", stock[0], stock[1])));
         } catch (NumberFormatException e) {
             ctx.status(400).json(Map.of(
                     "success", false,
@@ -785,6 +765,9 @@ public class ItemController {
                 }
             }
 
+            // One catalog rebuild for the whole file instead of one per row
+            itemService.refreshCatalog();
+
             ctx.json(Map.of(
                     "success", true,
                     "imported", imported,
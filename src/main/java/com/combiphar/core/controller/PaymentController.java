@@ -1,11 +1,15 @@
 package com.combiphar.core.controller;
 
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 
 import com.combiphar.core.model.Cart;
 import com.combiphar.core.model.OrderSummary;
+import com.combiphar.core.model.ShippingAddress;
+import com.combiphar.core.service.IdempotencyKeys;
 import com.combiphar.core.service.OrderService;
 import com.combiphar.core.service.PaymentService;
 
@@ -32,6 +36,9 @@ public class PaymentController {
         }
 
         Map<String, Object> model = buildModel(ctx, cart);
+        if (model == null) {
+            return;
+        }
         model.put("title", "Pembayaran Transfer");
         model.put("allBankAccounts", paymentService.getAvailableBankAccounts());
         ctx.render("customer/payment-transfer", model);
@@ -45,16 +52,42 @@ public class PaymentController {
         }
 
         Map<String, Object> model = buildModel(ctx, cart);
+        if (model == null) {
+            return;
+        }
         model.put("title", "Upload Bukti Pembayaran");
+        String checkoutKey = ctx.sessionAttribute("checkoutKey");
+        if (checkoutKey == null) {
+            checkoutKey = IdempotencyKeys.newKey();
+            ctx.sessionAttribute("checkoutKey", checkoutKey);
+        }
+        model.put("checkoutKey", checkoutKey);
         ctx.render("customer/payment-upload", model);
     }
 
+    /**
+     * Model shared by the payment pages, with the summary priced again for
+     * the current cart, courier and address, since the one stored at checkout
+     * goes stale when the cart or the rates change. If the courier no longer
+     * serves the address, redirects back to checkout and returns null.
+     */
     private Map<String, Object> buildModel(Context ctx, Cart cart) {
-        OrderSummary summary = ctx.sessionAttribute("orderSummary");
-        if (summary == null) {
-            summary = orderService.calculateOrderSummary(cart, ctx.sessionAttribute("selectedCourier"));
-            ctx.sessionAttribute("orderSummary", summary);
+        OrderSummary previous = ctx.sessionAttribute("orderSummary");
+        String courier = ctx.sessionAttribute("selectedCourier");
+        if (courier == null && previous != null) {
+            courier = previous.getCourierName();
+        }
+        ShippingAddress address = ctx.sessionAttribute("shippingAddress");
+        OrderSummary summary;
+        try {
+            summary = orderService.calculateOrderSummary(cart, courier,
+                    address != null ? address.getPostalCode() : null);
+        } catch (IllegalArgumentException e) {
+            ctx.sessionAttribute("orderSummary", null);
+            ctx.redirect("/checkout?error=" + URLEncoder.encode(e.getMessage(), StandardCharsets.UTF_8));
+            return null;
         }
+        ctx.sessionAttribute("orderSummary", summary);
 
         Map<String, Object> model = new HashMap<>();
         model.put("currentUser", ctx.sessionAttribute("currentUser"));
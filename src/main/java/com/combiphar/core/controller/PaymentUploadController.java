@@ -3,24 +3,31 @@ package com.combiphar.core.controller;
 import java.io.IOException;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 
 import com.combiphar.core.model.Cart;
 import com.combiphar.core.model.OrderSummary;
 import com.combiphar.core.model.PaymentProof;
 import com.combiphar.core.model.User;
 import com.combiphar.core.repository.CartRepository;
+import com.combiphar.core.service.CartWriteBehind;
 import com.combiphar.core.service.FileUploadService;
+import com.combiphar.core.service.IdempotencyKeys;
 import com.combiphar.core.service.OrderService;
 
 import io.javalin.http.Context;
 import io.javalin.http.UploadedFile;
 
 /**
- * Controller untuk upload bukti pembayaran.
+ * Controller untuk upload bukti pembayaran. Setiap upload membawa kunci
+ * checkout dari session; upload ulang dengan kunci yang sama mendapat respons
+ * pertama tanpa membuat pesanan kedua (lihat {@link IdempotencyKeys}). Jika
+ * pesanan gagal dibuat, file bukti yang sudah tersimpan dihapus lagi.
  */
 public class PaymentUploadController {
 
-    private static final String[] SESSION_KEYS = {"cart", "orderId", "orderSummary", "selectedAddressId", "selectedCourier"};
+    private static final String[] SESSION_KEYS = {"cart", "orderId", "orderSummary", "selectedAddressId", "selectedCourier",
+        "checkoutKey"};
 
     private final FileUploadService fileUploadService;
     private final OrderService orderService;
@@ -33,6 +40,10 @@ public class PaymentUploadController {
     }
 
     public void uploadPaymentProof(Context ctx) {
+        String idempotencyKey = null;
+        boolean claimed = false;
+        PaymentProof proof = null;
+        boolean orderPlaced = false;
         try {
             UploadedFile file = ctx.uploadedFile("paymentProof");
             String bank = ctx.formParam("bank");
@@ -44,43 +55,102 @@ public class PaymentUploadController {
             }
 
             User user = ctx.sessionAttribute("currentUser");
+            idempotencyKey = ctx.formParam("idempotencyKey");
+            if (idempotencyKey == null) {
+                idempotencyKey = ctx.header("Idempotency-Key");
+            }
+            if (user == null || !IdempotencyKeys.isValidKey(idempotencyKey) || !isSessionKey(ctx, idempotencyKey)) {
+                ctx.status(400).json(Map.of("success", false, "message", "Session tidak valid, silakan mulai dari checkout"));
+                return;
+            }
+
+            // A repeated submission gets the first result; the session is already cleared by then
+            Optional<Map<String, Object>> previous = IdempotencyKeys.claim(idempotencyKey, user.getId());
+            if (previous.isPresent()) {
+                ctx.header("Idempotent-Replayed", "true");
+                ctx.json(previous.get());
+                return;
+            }
+            claimed = true;
+
             Cart cart = ctx.sessionAttribute("cart");
             String addressId = ctx.sessionAttribute("selectedAddressId");
 
-            if (user == null || cart == null || cart.isEmpty() || addressId == null) {
+            if (cart == null || cart.isEmpty() || addressId == null) {
                 ctx.status(400).json(Map.of("success", false, "message", "Session tidak valid, silakan mulai dari checkout"));
                 return;
             }
 
-            PaymentProof proof;
             try (var stream = file.content()) {
                 proof = fileUploadService.saveFile(stream, file.filename(), file.contentType(), file.size());
             }
 
             OrderSummary summary = ctx.sessionAttribute("orderSummary");
             String courier = ctx.sessionAttribute("selectedCourier");
-            orderService.createOrder(user.getId(), addressId, cart,
-                    courier != null ? courier : (summary != null ? summary.getCourierName() : null), bank, proof.getFilePath());
-
-            // Clear cart dari database
-            try {
-                cartRepository.clearCartForUser(user.getId());
-            } catch (Exception ignored) {
-                // Best effort - jika gagal clear DB, cart session tetap di-clear
+            Map<String, Object> response = Map.of("success", true, "message", "Bukti pembayaran berhasil diunggah",
+                    "fileName", proof.getFileName(), "uploadedAt", proof.getUploadedAt().toString());
+            String checkoutKey = idempotencyKey;
+
+            // Cart edits from other tabs wait until the order is placed and the cart cleared
+            synchronized (cart) {
+                // Write any queued cart changes before the order is created from it
+                CartWriteBehind.flush(user.getId());
+
+                // The key is completed in the order's own transaction
+                orderService.createOrder(user.getId(), addressId, cart,
+                        courier != null ? courier : (summary != null ? summary.getCourierName() : null), bank,
+                        proof.getFilePath(), conn -> {
+                            IdempotencyKeys.complete(conn, checkoutKey, response);
+                            return null;
+                        });
+                orderPlaced = true;
+                IdempotencyKeys.completed(idempotencyKey, user.getId(), response);
+                claimed = false;
+
+                // Clear cart dari database; a save queued or being written meanwhile must not restore it
+                CartWriteBehind.discard(user.getId());
+                try {
+                    cartRepository.clearCartForUser(user.getId());
+                } catch (Exception ignored) {
+                    // Best effort - jika gagal clear DB, cart session tetap di-clear
+                }
             }
 
             for (String key : SESSION_KEYS) {
                 ctx.sessionAttribute(key, null);
             }
+            // A retry of this upload must still reach its stored response
+            ctx.sessionAttribute("completedCheckoutKey", idempotencyKey);
             ctx.sessionAttribute("paymentProof", proof);
 
-            ctx.json(Map.of("success", true, "message", "Bukti pembayaran berhasil diunggah",
-                    "fileName", proof.getFileName(), "uploadedAt", proof.getUploadedAt().toString()));
+            ctx.json(response);
 
         } catch (IllegalArgumentException e) {
             ctx.status(400).json(Map.of("success", false, "message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            ctx.status(409).json(Map.of("success", false, "message", e.getMessage()));
         } catch (IOException e) {
             ctx.status(500).json(Map.of("success", false, "message", "Gagal menyimpan file: " + e.getMessage()));
+        } catch (RuntimeException e) {
+            System.err.println("[PaymentUploadController] upload failed: " + e.getMessage());
+            ctx.status(500).json(Map.of("success", false, "message", "Gagal membuat pesanan, silakan coba lagi"));
+        } finally {
+            // No order was placed, so the same key may be used again and the proof is not needed
+            if (claimed) {
+                IdempotencyKeys.abandon(idempotencyKey);
+            }
+            if (proof != null && !orderPlaced) {
+                fileUploadService.deleteFile(proof);
+            }
         }
     }
+
+    /**
+     * Only the key handed out by this session's checkout is accepted, or the
+     * key of its last completed upload so a retry gets the stored response.
+     */
+    private boolean isSessionKey(Context ctx, String key) {
+        return key.equals(ctx.sessionAttribute("checkoutKey"))
+                || key.equals(ctx.sessionAttribute("completedCheckoutKey"));
+    }
 }
@@ -20,7 +20,14 @@ public final class MigrationRunner {
 
     private static final String[] MIGRATION_FILES = {
         "migration_add_cart.sql",
-        "migration_add_address_primary.sql"
+        "migration_add_address_primary.sql",
+        "migration_cart_items_unique.sql",
+        "migration_stock_reservations.sql",
+        "migration_carts_updated_at_index.sql",
+        "migration_order_numbers.sql",
+        "migration_idempotency_keys.sql",
+        "migration_items_catalog_index.sql",
+        "migration_order_items_line_no.sql"
     };
 
     private MigrationRunner() {
@@ -1,21 +1,38 @@
 package com.combiphar.core.model;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
 /**
- * Represents a shopping cart containing items. Uses defensive copying to
- * maintain immutability.
+ * Represents a shopping cart containing items. Lines are kept in an
+ * insertion-ordered map keyed by item ID, so every line operation is O(1)
+ * and a quantity change keeps the line in place. The total price and unit
+ * count are maintained on each mutation instead of being recomputed.
+ *
+ * The cart also remembers which lines changed since it was last loaded from
+ * or saved to the database, so the repository can write only those rows.
+ * Stock holds placed for its lines are keyed by {@link #getHolderId()}.
  */
 public class Cart {
 
-    private final List<CartItem> items;
+    private final Map<String, CartItem> items;
+    private BigDecimal totalPrice = BigDecimal.ZERO;
+    private int totalQuantity;
+    private List<CartItem> itemsView;
+    private final Set<String> dirtyItemIds = new LinkedHashSet<>();
+    private String cartId;
+    private boolean synced;
+    private final Map<String, CartWarning> warnings = new LinkedHashMap<>();
+    private volatile String holderId = UUID.randomUUID().toString();
 
     public Cart() {
-        this.items = new ArrayList<>();
+        this.items = new LinkedHashMap<>();
     }
 
     /**
@@ -29,16 +46,12 @@ public class Cart {
             throw new IllegalArgumentException("Cart item tidak boleh null");
         }
 
-        Optional<CartItem> existing = items.stream()
-                .filter(i -> i.getItemId().equals(item.getItemId()))
-                .findFirst();
-
-        if (existing.isPresent()) {
-            items.remove(existing.get());
-            int newQuantity = existing.get().getQuantity() + item.getQuantity();
-            items.add(item.withQuantity(newQuantity));
+        CartItem existing = items.get(item.getItemId());
+        if (existing != null) {
+            replace(existing, existing.withQuantity(existing.getQuantity() + item.getQuantity()));
         } else {
-            items.add(item);
+            items.put(item.getItemId(), item);
+            added(item);
         }
     }
 
@@ -56,13 +69,23 @@ public class Cart {
             throw new IllegalArgumentException("Kuantitas harus lebih dari 0");
         }
 
-        items.stream()
-                .filter(i -> i.getItemId().equals(itemId))
-                .findFirst()
-                .ifPresent(item -> {
-                    items.remove(item);
-                    items.add(item.withQuantity(quantity));
-                });
+        CartItem existing = items.get(itemId);
+        if (existing != null) {
+            replace(existing, existing.withQuantity(quantity));
+        }
+    }
+
+    /**
+     * Moves an existing line to a new unit price.
+     *
+     * @param itemId the item ID
+     * @param price the current price
+     */
+    public void updatePrice(String itemId, BigDecimal price) {
+        CartItem existing = itemId != null ? items.get(itemId) : null;
+        if (existing != null) {
+            replace(existing, existing.withPrice(price));
+        }
     }
 
     /**
@@ -71,26 +94,43 @@ public class Cart {
      * @param itemId the item ID to remove
      */
     public void removeItem(String itemId) {
-        items.removeIf(item -> item.getItemId().equals(itemId));
+        CartItem removed = itemId != null ? items.remove(itemId) : null;
+        if (removed != null) {
+            totalPrice = totalPrice.subtract(removed.getSubtotal());
+            totalQuantity -= removed.getQuantity();
+            itemsView = null;
+            dirtyItemIds.add(itemId);
+            warnings.remove(itemId);
+        }
+    }
+
+    /**
+     * Returns the line for an item, or null if it is not in the cart.
+     */
+    public CartItem getItem(String itemId) {
+        return itemId != null ? items.get(itemId) : null;
     }
 
     /**
-     * Returns an immutable view of cart items. Defensive: prevents external
-     * modification.
+     * Returns an immutable snapshot of cart items in insertion order. The
+     * snapshot is reused until the next mutation.
      */
     public List<CartItem> getItems() {
-        return Collections.unmodifiableList(items);
+        List<CartItem> view = itemsView;
+        if (view == null) {
+            view = List.copyOf(items.values());
+            itemsView = view;
+        }
+        return view;
     }
 
     /**
-     * Calculates the total price of all items in the cart.
+     * Returns the total price of all items in the cart.
      *
      * @return the sum of all item subtotals
      */
     public BigDecimal getTotalPrice() {
-        return items.stream()
-                .map(CartItem::getSubtotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return totalPrice;
     }
 
     /**
@@ -100,6 +140,13 @@ public class Cart {
         return items.size();
     }
 
+    /**
+     * Returns the number of units over all lines.
+     */
+    public int getTotalQuantity() {
+        return totalQuantity;
+    }
+
     /**
      * Checks if the cart is empty.
      */
@@ -111,6 +158,106 @@ public class Cart {
      * Clears all items from the cart.
      */
     public void clear() {
+        dirtyItemIds.addAll(items.keySet());
         items.clear();
+        totalPrice = BigDecimal.ZERO;
+        totalQuantity = 0;
+        itemsView = null;
+        warnings.clear();
+    }
+
+    /**
+     * Warnings from the last check against current stock and prices, in
+     * cart order. A line's warning is dropped when the line changes.
+     */
+    public List<CartWarning> getWarnings() {
+        return List.copyOf(warnings.values());
+    }
+
+    /**
+     * Warnings keyed by item ID, for per-line display.
+     */
+    public Map<String, CartWarning> getWarningsByItem() {
+        return Collections.unmodifiableMap(warnings);
+    }
+
+    /**
+     * Replaces the warnings with the result of a new check.
+     */
+    public void setWarnings(List<CartWarning> newWarnings) {
+        warnings.clear();
+        for (CartWarning warning : newWarnings) {
+            warnings.put(warning.getItemId(), warning);
+        }
+    }
+
+    /**
+     * ID owning this cart's stock reservations: the user ID once the cart
+     * belongs to a signed-in user, so holds survive a new login, a restart or
+     * a second device; a random ID for guest carts.
+     */
+    public String getHolderId() {
+        return holderId;
+    }
+
+    /**
+     * Hands the cart to a new holder, usually the user ID. The caller moves
+     * or releases the holds of the previous holder.
+     */
+    public void setHolderId(String holderId) {
+        if (holderId == null || holderId.isBlank()) {
+            throw new IllegalArgumentException("Holder ID tidak boleh kosong");
+        }
+        this.holderId = holderId;
+    }
+
+    /**
+     * Item IDs added, changed or removed since the last sync. A line that is
+     * still in the cart needs an upsert, a missing one a delete.
+     */
+    public Set<String> getDirtyItemIds() {
+        return Set.copyOf(dirtyItemIds);
+    }
+
+    /**
+     * Whether the persisted rows are known to match this cart apart from the
+     * dirty lines. False for carts that were never loaded or saved, which
+     * must be written in full.
+     */
+    public boolean isSynced() {
+        return synced;
+    }
+
+    /**
+     * ID of the carts row this cart was loaded from or saved to, or null.
+     */
+    public String getCartId() {
+        return cartId;
+    }
+
+    /**
+     * Records that the database now matches this cart.
+     *
+     * @param cartId the carts row ID
+     */
+    public void markSynced(String cartId) {
+        this.cartId = cartId;
+        this.synced = true;
+        dirtyItemIds.clear();
+    }
+
+    private void replace(CartItem existing, CartItem updated) {
+        items.put(updated.getItemId(), updated);
+        totalPrice = totalPrice.subtract(existing.getSubtotal());
+        totalQuantity -= existing.getQuantity();
+        added(updated);
+    }
+
+    private void added(CartItem item) {
+        totalPrice = totalPrice.add(item.getSubtotal());
+        totalQuantity += item.getQuantity();
+        itemsView = null;
+        dirtyItemIds.add(item.getItemId());
+        warnings.remove(item.getItemId());
     }
 }
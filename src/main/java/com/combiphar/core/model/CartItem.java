@@ -99,6 +99,16 @@ public class CartItem {
         return new CartItem(itemId, itemName, itemPrice, newQuantity, imageUrl);
     }
 
+    /**
+     * Creates a new CartItem with an updated price.
+     *
+     * @param newPrice the new unit price
+     * @return a new CartItem with the updated price
+     */
+    public CartItem withPrice(BigDecimal newPrice) {
+        return new CartItem(itemId, itemName, newPrice, quantity, imageUrl);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
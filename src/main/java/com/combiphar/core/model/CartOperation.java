@@ -0,0 +1,66 @@
+package com.combiphar.core.model;
+
+/**
+ * One entry of a batched cart edit, read from the JSON body of
+ * /api/cart/batch: {@code {"action": "add|update|remove", "itemId": "...",
+ * "quantity": 2}}. Quantity is ignored for remove.
+ */
+public class CartOperation {
+
+    public enum Action {
+        ADD, UPDATE, REMOVE;
+
+        /**
+         * Parses an action name case-insensitively.
+         *
+         * @throws IllegalArgumentException for unknown or missing names
+         */
+        public static Action fromParam(String value) {
+            if (value != null) {
+                for (Action action : values()) {
+                    if (action.name().equalsIgnoreCase(value.trim())) {
+                        return action;
+                    }
+                }
+            }
+            throw new IllegalArgumentException("Aksi keranjang tidak dikenal: " + value);
+        }
+    }
+
+    private String action;
+    private String itemId;
+    private Integer quantity;
+
+    public CartOperation() {
+    }
+
+    public CartOperation(String action, String itemId, Integer quantity) {
+        this.action = action;
+        this.itemId = itemId;
+        this.quantity = quantity;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public void setAction(String action) {
+        this.action = action;
+    }
+
+    public String getItemId() {
+        return itemId;
+    }
+
+    public void setItemId(String itemId) {
+        this.itemId = itemId;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+}
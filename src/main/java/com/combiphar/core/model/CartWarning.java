@@ -0,0 +1,43 @@
+package com.combiphar.core.model;
+
+/**
+ * A problem with one cart line found by comparing it against the current
+ * item row: the item can no longer be bought, has too little stock, or its
+ * price changed since it was added. Immutable.
+ */
+public class CartWarning {
+
+    public enum Type {
+        UNAVAILABLE, OUT_OF_STOCK, PRICE_CHANGED
+    }
+
+    private final String itemId;
+    private final Type type;
+    private final String message;
+
+    public CartWarning(String itemId, Type type, String message) {
+        this.itemId = itemId;
+        this.type = type;
+        this.message = message;
+    }
+
+    public String getItemId() {
+        return itemId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Whether the line cannot be ordered as it is (a price change only needs
+     * the customer's attention).
+     */
+    public boolean isBlocking() {
+        return type != Type.PRICE_CHANGED;
+    }
+}
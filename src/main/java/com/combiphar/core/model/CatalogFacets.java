@@ -0,0 +1,51 @@
+package com.combiphar.core.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Facet counts for a catalog query. Each facet is counted under every other
+ * active filter but not its own, so switching a value shows how many items
+ * the new selection would return. Immutable.
+ */
+public class CatalogFacets {
+
+    private final Map<String, Integer> categories;
+    private final Map<String, Integer> conditions;
+    private final Map<PriceBucket, Integer> prices;
+
+    public CatalogFacets(Map<String, Integer> categories, Map<String, Integer> conditions,
+            Map<PriceBucket, Integer> prices) {
+        this.categories = Collections.unmodifiableMap(new LinkedHashMap<>(categories));
+        this.conditions = Collections.unmodifiableMap(new LinkedHashMap<>(conditions));
+        this.prices = Collections.unmodifiableMap(new LinkedHashMap<>(prices));
+    }
+
+    /**
+     * Count per category id; categories without matches are absent.
+     */
+    public Map<String, Integer> getCategories() {
+        return categories;
+    }
+
+    public int getCategoryCount(String categoryId) {
+        return categories.getOrDefault(categoryId, 0);
+    }
+
+    public Map<String, Integer> getConditions() {
+        return conditions;
+    }
+
+    public int getConditionCount(String condition) {
+        return conditions.getOrDefault(condition, 0);
+    }
+
+    public Map<PriceBucket, Integer> getPrices() {
+        return prices;
+    }
+
+    public int getPriceCount(PriceBucket bucket) {
+        return prices.getOrDefault(bucket, 0);
+    }
+}
@@ -0,0 +1,55 @@
+package com.combiphar.core.model;
+
+import java.util.List;
+
+/**
+ * Filters of a customer catalog query: free text plus the category, condition
+ * and price facets. Blank or unknown values mean "no filter". Immutable.
+ */
+public class CatalogFilter {
+
+    /** Item conditions offered as a facet, in display order. */
+    public static final List<String> CONDITIONS = List.of("NEW", "USED_GOOD", "USED_FAIR", "DAMAGED");
+
+    private final String searchQuery;
+    private final String categoryId;
+    private final String condition;
+    private final PriceBucket priceBucket;
+
+    public CatalogFilter(String searchQuery, String categoryId, String condition, PriceBucket priceBucket) {
+        this.searchQuery = blankToNull(searchQuery);
+        this.categoryId = blankToNull(categoryId);
+        String normalizedCondition = blankToNull(condition);
+        this.condition = normalizedCondition != null && CONDITIONS.contains(normalizedCondition.toUpperCase())
+                ? normalizedCondition.toUpperCase()
+                : null;
+        this.priceBucket = priceBucket;
+    }
+
+    /**
+     * Builds a filter from raw query parameters.
+     */
+    public static CatalogFilter fromParams(String searchQuery, String categoryId, String condition, String price) {
+        return new CatalogFilter(searchQuery, categoryId, condition, PriceBucket.fromParam(price));
+    }
+
+    public String getSearchQuery() {
+        return searchQuery;
+    }
+
+    public String getCategoryId() {
+        return categoryId;
+    }
+
+    public String getCondition() {
+        return condition;
+    }
+
+    public PriceBucket getPriceBucket() {
+        return priceBucket;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+}
@@ -0,0 +1,56 @@
+package com.combiphar.core.model;
+
+import java.util.List;
+
+import com.combiphar.core.util.CatalogCursor;
+
+/**
+ * One page of catalog results with the cursor for the next page. Immutable.
+ */
+public class CatalogPage {
+
+    private final List<ItemSummary> items;
+    private final CatalogCursor nextCursor;
+    private final int totalItems;
+
+    public CatalogPage(List<ItemSummary> items, CatalogCursor nextCursor, int totalItems) {
+        this.items = List.copyOf(items);
+        this.nextCursor = nextCursor;
+        this.totalItems = totalItems;
+    }
+
+    /**
+     * Builds a page whose next cursor points at its last item.
+     *
+     * @param items   items of this page
+     * @param hasMore whether more rows follow this page
+     * @param total   total rows matching the filters
+     */
+    public static CatalogPage of(List<ItemSummary> items, boolean hasMore, int total) {
+        CatalogCursor next = null;
+        if (hasMore && !items.isEmpty()) {
+            ItemSummary last = items.get(items.size() - 1);
+            next = new CatalogCursor(last.getCreatedAt(), last.getId());
+        }
+        return new CatalogPage(items, next, total);
+    }
+
+    public List<ItemSummary> getItems() {
+        return items;
+    }
+
+    /**
+     * Encoded cursor for the next page, or null on the last page.
+     */
+    public String getNextCursor() {
+        return nextCursor != null ? nextCursor.encode() : null;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public int getTotalItems() {
+        return totalItems;
+    }
+}
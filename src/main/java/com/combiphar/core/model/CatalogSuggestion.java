@@ -0,0 +1,46 @@
+package com.combiphar.core.model;
+
+/**
+ * One typeahead completion: a product name or a category name with the link
+ * it opens. Immutable.
+ */
+public class CatalogSuggestion {
+
+    public static final String TYPE_PRODUCT = "product";
+    public static final String TYPE_CATEGORY = "category";
+
+    private final String text;
+    private final String type;
+    private final String id;
+    private final int popularity;
+
+    public CatalogSuggestion(String text, String type, String id, int popularity) {
+        this.text = text;
+        this.type = type;
+        this.id = id;
+        this.popularity = popularity;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Units sold, summed over the category's items for category suggestions.
+     */
+    public int getPopularity() {
+        return popularity;
+    }
+
+    public String getUrl() {
+        return TYPE_CATEGORY.equals(type) ? "/catalog?category=" + id : "/product/" + id;
+    }
+}
@@ -0,0 +1,52 @@
+package com.combiphar.core.model;
+
+import java.time.Instant;
+
+/**
+ * A client-supplied key for one order placement, with the response sent
+ * for it once the order exists. Immutable.
+ */
+public class IdempotencyKey {
+
+    public enum Status {
+        PENDING, COMPLETED
+    }
+
+    private final String key;
+    private final String userId;
+    private final Status status;
+    private final String response;
+    private final Instant createdAt;
+
+    public IdempotencyKey(String key, String userId, Status status, String response, Instant createdAt) {
+        this.key = key;
+        this.userId = userId;
+        this.status = status;
+        this.response = response;
+        this.createdAt = createdAt;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * The JSON response body of the completed request, or null while
+     * pending.
+     */
+    public String getResponse() {
+        return response;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
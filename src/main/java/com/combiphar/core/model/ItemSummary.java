@@ -0,0 +1,144 @@
+package com.combiphar.core.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Listing projection of an {@link Item} for grids and list APIs. Carries a
+ * short description excerpt instead of the full description and no
+ * updated_at; load the full {@link Item} for detail and edit views.
+ */
+public class ItemSummary {
+
+    /** Maximum length of the description excerpt. */
+    public static final int EXCERPT_LENGTH = 160;
+
+    private String id;
+    private String categoryId;
+    private String name;
+    private String condition;
+    private String excerpt;
+    private String imageUrl;
+    private BigDecimal price;
+    private Integer stock;
+    private String eligibilityStatus;
+    private Boolean isPublished;
+    private LocalDateTime createdAt;
+
+    public ItemSummary() {
+    }
+
+    public ItemSummary(Item item) {
+        this.id = item.getId();
+        this.categoryId = item.getCategoryId();
+        this.name = item.getName();
+        this.condition = item.getCondition();
+        this.excerpt = excerptOf(item.getDescription());
+        this.imageUrl = item.getImageUrl();
+        this.price = item.getPrice();
+        this.stock = item.getStock();
+        this.eligibilityStatus = item.getEligibilityStatus();
+        this.isPublished = item.getIsPublished();
+        this.createdAt = item.getCreatedAt();
+    }
+
+    /**
+     * Cuts a description to {@link #EXCERPT_LENGTH} characters, the same
+     * prefix the summary queries select.
+     */
+    public static String excerptOf(String description) {
+        if (description == null || description.length() <= EXCERPT_LENGTH) {
+            return description;
+        }
+        return description.substring(0, EXCERPT_LENGTH);
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(String categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getCondition() {
+        return condition;
+    }
+
+    public void setCondition(String condition) {
+        this.condition = condition;
+    }
+
+    public String getExcerpt() {
+        return excerpt;
+    }
+
+    public void setExcerpt(String excerpt) {
+        this.excerpt = excerpt;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public void setImageUrl(String imageUrl) {
+        this.imageUrl = imageUrl;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public Integer getStock() {
+        return stock;
+    }
+
+    public void setStock(Integer stock) {
+        this.stock = stock;
+    }
+
+    public String getEligibilityStatus() {
+        return eligibilityStatus;
+    }
+
+    public void setEligibilityStatus(String eligibilityStatus) {
+        this.eligibilityStatus = eligibilityStatus;
+    }
+
+    public Boolean getIsPublished() {
+        return isPublished;
+    }
+
+    public void setIsPublished(Boolean isPublished) {
+        this.isPublished = isPublished;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,30 @@
+package com.combiphar.core.model;
+
+import java.util.Map;
+
+/**
+ * A persisted cart together with the current rows of its items (price,
+ * stock and publish/eligibility flags), read in one query. Items that no
+ * longer exist are missing from the map. Immutable.
+ */
+public class LoadedCart {
+
+    private final Cart cart;
+    private final Map<String, ItemSummary> currentItems;
+
+    public LoadedCart(Cart cart, Map<String, ItemSummary> currentItems) {
+        this.cart = cart;
+        this.currentItems = Map.copyOf(currentItems);
+    }
+
+    public Cart getCart() {
+        return cart;
+    }
+
+    /**
+     * Current item rows keyed by item ID.
+     */
+    public Map<String, ItemSummary> getCurrentItems() {
+        return currentItems;
+    }
+}
@@ -24,12 +24,15 @@ public class Order {
 
     /**
      * Constructor untuk membuat order baru.
+     *
+     * @param orderNumber nomor order yang sudah dialokasikan, lihat
+     *        {@code OrderNumbers}
      */
-    public Order(String userId, String addressId, BigDecimal totalPrice, String courierName) {
+    public Order(String orderNumber, String userId, String addressId, BigDecimal totalPrice, String courierName) {
         this.id = UUID.randomUUID().toString();
         this.userId = Objects.requireNonNull(userId, "User ID required");
         this.addressId = addressId;
-        this.orderNumber = generateOrderNumber();
+        this.orderNumber = Objects.requireNonNull(orderNumber, "Order number required");
         this.totalPrice = Objects.requireNonNull(totalPrice, "Total price required");
         this.paymentMethod = "TRANSFER";
         this.pickupMethod = "DELIVERY";
@@ -58,10 +61,6 @@ public class Order {
         this.createdAt = createdAt;
     }
 
-    private String generateOrderNumber() {
-        return "ORD-" + System.currentTimeMillis();
-    }
-
     public String getId() {
         return id;
     }
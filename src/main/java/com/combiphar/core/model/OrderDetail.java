@@ -0,0 +1,75 @@
+package com.combiphar.core.model;
+
+import java.util.List;
+
+/**
+ * Everything the order tracking page shows about one order: the order, its
+ * payment, its lines and its shipment. Payment and shipment are null when
+ * the order has none. A part that failed or did not load in time is flagged
+ * unavailable, so the page can say so instead of showing it as empty.
+ * Immutable.
+ */
+public class OrderDetail {
+
+    private final Order order;
+    private final Payment payment;
+    private final List<OrderItem> items;
+    private final Shipment shipment;
+    private final boolean paymentUnavailable;
+    private final boolean itemsUnavailable;
+    private final boolean shipmentUnavailable;
+
+    public OrderDetail(Order order, Payment payment, List<OrderItem> items, Shipment shipment) {
+        this(order, payment, items, shipment, false, false, false);
+    }
+
+    public OrderDetail(Order order, Payment payment, List<OrderItem> items, Shipment shipment,
+            boolean paymentUnavailable, boolean itemsUnavailable, boolean shipmentUnavailable) {
+        this.order = order;
+        this.payment = payment;
+        this.items = items != null ? List.copyOf(items) : List.of();
+        this.shipment = shipment;
+        this.paymentUnavailable = paymentUnavailable;
+        this.itemsUnavailable = itemsUnavailable;
+        this.shipmentUnavailable = shipmentUnavailable;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    public Payment getPayment() {
+        return payment;
+    }
+
+    public List<OrderItem> getItems() {
+        return items;
+    }
+
+    public Shipment getShipment() {
+        return shipment;
+    }
+
+    /**
+     * Whether the payment could not be loaded; {@link #getPayment()} is then
+     * null even if the order has one.
+     */
+    public boolean isPaymentUnavailable() {
+        return paymentUnavailable;
+    }
+
+    /**
+     * Whether the lines could not be loaded; {@link #getItems()} is then empty.
+     */
+    public boolean isItemsUnavailable() {
+        return itemsUnavailable;
+    }
+
+    /**
+     * Whether the shipment could not be loaded; {@link #getShipment()} is
+     * then null even if the order has one.
+     */
+    public boolean isShipmentUnavailable() {
+        return shipmentUnavailable;
+    }
+}
@@ -11,15 +11,26 @@ public class OrderItem {
 
     private final String id;
     private final String orderId;
+    private final int lineNo;
     private final String itemId;
+    private final String itemName;
     private final int quantity;
     private final BigDecimal unitPrice;
     private final BigDecimal subtotal;
 
     public OrderItem(String orderId, String itemId, int quantity, BigDecimal unitPrice) {
+        this(orderId, 0, itemId, quantity, unitPrice);
+    }
+
+    /**
+     * Baris baru pada posisi lineNo (0 = baris pertama) dalam order.
+     */
+    public OrderItem(String orderId, int lineNo, String itemId, int quantity, BigDecimal unitPrice) {
         this.id = UUID.randomUUID().toString();
         this.orderId = Objects.requireNonNull(orderId);
+        this.lineNo = lineNo;
         this.itemId = Objects.requireNonNull(itemId);
+        this.itemName = null;
         this.quantity = quantity;
         this.unitPrice = Objects.requireNonNull(unitPrice);
         this.subtotal = unitPrice.multiply(BigDecimal.valueOf(quantity));
@@ -27,9 +38,20 @@ public class OrderItem {
 
     // Constructor untuk load dari database
     public OrderItem(String id, String orderId, String itemId, int quantity, BigDecimal unitPrice) {
+        this(id, orderId, 0, itemId, null, quantity, unitPrice);
+    }
+
+    /**
+     * Constructor untuk load dari database beserta posisi baris dan nama
+     * item; itemName null jika item sudah dihapus.
+     */
+    public OrderItem(String id, String orderId, int lineNo, String itemId, String itemName, int quantity,
+            BigDecimal unitPrice) {
         this.id = id;
         this.orderId = orderId;
+        this.lineNo = lineNo;
         this.itemId = itemId;
+        this.itemName = itemName;
         this.quantity = quantity;
         this.unitPrice = unitPrice;
         this.subtotal = unitPrice.multiply(BigDecimal.valueOf(quantity));
@@ -39,7 +61,9 @@ public class OrderItem {
             BigDecimal unitPrice, BigDecimal subtotal) {
         this.id = id;
         this.orderId = orderId;
+        this.lineNo = 0;
         this.itemId = itemId;
+        this.itemName = null;
         this.quantity = quantity;
         this.unitPrice = unitPrice;
         this.subtotal = subtotal;
@@ -53,10 +77,26 @@ public class OrderItem {
         return orderId;
     }
 
+    /**
+     * Posisi baris dalam order, 0 untuk baris pertama. Order lama yang
+     * disimpan sebelum kolom line_no ada bernilai 0 semua.
+     */
+    public int getLineNo() {
+        return lineNo;
+    }
+
     public String getItemId() {
         return itemId;
     }
 
+    /**
+     * Nama item jika dimuat bersama item-nya, null jika tidak dimuat atau
+     * item sudah dihapus.
+     */
+    public String getItemName() {
+        return itemName;
+    }
+
     public int getQuantity() {
         return quantity;
     }
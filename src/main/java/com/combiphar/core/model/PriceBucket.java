@@ -0,0 +1,70 @@
+package com.combiphar.core.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Enum untuk rentang harga pada facet katalog. Batas bawah inklusif, batas
+ * atas eksklusif.
+ */
+public enum PriceBucket {
+
+    UNDER_1M(null, 1_000_000L, "Di bawah Rp 1 jt"),
+    FROM_1M_TO_2M(1_000_000L, 2_000_000L, "Rp 1 jt - 2 jt"),
+    FROM_2M_TO_5M(2_000_000L, 5_000_000L, "Rp 2 jt - 5 jt"),
+    ABOVE_5M(5_000_000L, null, "Rp 5 jt ke atas");
+
+    private final BigDecimal min;
+    private final BigDecimal max;
+    private final String displayName;
+
+    PriceBucket(Long min, Long max, String displayName) {
+        this.min = min != null ? BigDecimal.valueOf(min) : null;
+        this.max = max != null ? BigDecimal.valueOf(max) : null;
+        this.displayName = displayName;
+    }
+
+    public BigDecimal getMin() {
+        return min;
+    }
+
+    public BigDecimal getMax() {
+        return max;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public boolean contains(BigDecimal price) {
+        if (price == null) {
+            return false;
+        }
+        return (min == null || price.compareTo(min) >= 0) && (max == null || price.compareTo(max) < 0);
+    }
+
+    /**
+     * Returns the bucket a price falls into, or null if price is null.
+     */
+    public static PriceBucket of(BigDecimal price) {
+        for (PriceBucket bucket : values()) {
+            if (bucket.contains(price)) {
+                return bucket;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parses a query parameter, returning null for missing or unknown values.
+     */
+    public static PriceBucket fromParam(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
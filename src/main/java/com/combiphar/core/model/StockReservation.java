@@ -0,0 +1,40 @@
+package com.combiphar.core.model;
+
+import java.time.Instant;
+
+/**
+ * A time-bounded hold on units of one item, placed by one cart. Immutable.
+ */
+public class StockReservation {
+
+    private final String itemId;
+    private final String holderId;
+    private final int quantity;
+    private final Instant expiresAt;
+
+    public StockReservation(String itemId, String holderId, int quantity, Instant expiresAt) {
+        this.itemId = itemId;
+        this.holderId = holderId;
+        this.quantity = quantity;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getItemId() {
+        return itemId;
+    }
+
+    /**
+     * The {@link Cart#getHolderId() holder ID} of the cart owning the hold.
+     */
+    public String getHolderId() {
+        return holderId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+}
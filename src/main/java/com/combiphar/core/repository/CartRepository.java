@@ -6,44 +6,150 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import com.combiphar.core.config.DatabaseConfig;
 import com.combiphar.core.model.Cart;
 import com.combiphar.core.model.CartItem;
+import com.combiphar.core.model.ItemSummary;
+import com.combiphar.core.model.LoadedCart;
 
 /**
- * Repository to persist/load a user's cart. Minimal and defensive.
+ * Repository to persist/load a user's cart. Minimal and defensive. Saves are
+ * diff-based: only the lines the cart reports as dirty are upserted or
+ * deleted, relying on the unique key (cart_id, item_id) of cart_items.
  */
 public class CartRepository {
 
+    /** Shown for lines whose item was deleted. */
+    private static final String MISSING_ITEM_NAME = "Produk tidak tersedia";
+
     public Optional<Cart> findByUserId(String userId) throws SQLException {
+        return loadForUser(userId).map(LoadedCart::getCart);
+    }
+
+    /**
+     * Loads the user's cart and the current rows of its items in a single
+     * query (carts joined to cart_items and items). Lines whose item was
+     * deleted are kept under a placeholder name and have no current row.
+     */
+    public Optional<LoadedCart> loadForUser(String userId) throws SQLException {
         if (userId == null || userId.isBlank()) {
             return Optional.empty();
         }
 
-        try (Connection conn = DatabaseConfig.getConnection()) {
-            String cartId = findCartId(conn, userId);
-            if (cartId == null) {
-                return Optional.empty();
+        String sql = "SELECT c.id AS cart_id, ci.item_id, ci.quantity, ci.price, "
+                + "i.id AS current_id, i.name, i.image_url, i.price AS current_price, i.stock, "
+                + "i.is_published, i.eligibility_status "
+                + "FROM carts c "
+                + "LEFT JOIN cart_items ci ON ci.cart_id = c.id "
+                + "LEFT JOIN items i ON i.id = ci.item_id "
+                + "WHERE c.user_id = ? ORDER BY ci.id";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                String cartId = null;
+                Cart cart = new Cart();
+                Map<String, ItemSummary> currentItems = new HashMap<>();
+                while (rs.next()) {
+                    cartId = rs.getString("cart_id");
+                    String itemId = rs.getString("item_id");
+                    if (itemId == null) {
+                        continue; // cart without lines
+                    }
+
+                    String name = rs.getString("name");
+                    cart.addItem(new CartItem(
+                            itemId,
+                            name != null && !name.isBlank() ? name : MISSING_ITEM_NAME,
+                            rs.getBigDecimal("price"),
+                            rs.getInt("quantity"),
+                            rs.getString("image_url")));
+
+                    if (rs.getString("current_id") != null) {
+                        ItemSummary current = new ItemSummary();
+                        current.setId(itemId);
+                        current.setName(name);
+                        current.setImageUrl(rs.getString("image_url"));
+                        current.setPrice(rs.getBigDecimal("current_price"));
+                        current.setStock(rs.getInt("stock"));
+                        current.setIsPublished(rs.getBoolean("is_published"));
+                        current.setEligibilityStatus(rs.getString("eligibility_status"));
+                        currentItems.put(itemId, current);
+                    }
+                }
+
+                if (cartId == null) {
+                    return Optional.empty();
+                }
+                cart.markSynced(cartId);
+                cart.setHolderId(userId);
+                return Optional.of(new LoadedCart(cart, currentItems));
             }
-            return Optional.of(loadCartItems(conn, cartId));
         }
     }
 
+    /**
+     * Writes the cart's changes since its last sync in one transaction: one
+     * multi-row upsert for changed lines and one delete for removed lines.
+     * A cart that was never synced is written in full, replacing whatever
+     * rows the user had. Does nothing when there are no changes.
+     */
     public void saveCartForUser(String userId, Cart cart) throws SQLException {
         if (userId == null || userId.isBlank() || cart == null) {
             throw new IllegalArgumentException("userId and cart are required");
         }
 
+        Set<String> dirty = cart.getDirtyItemIds();
+        boolean fullSync = !cart.isSynced();
+        if (!fullSync && dirty.isEmpty()) {
+            return;
+        }
+
         try (Connection conn = DatabaseConfig.getConnection()) {
             conn.setAutoCommit(false);
             try {
-                String cartId = findCartId(conn, userId);
-                cartId = cartId != null ? updateCart(conn, cartId) : createCart(conn, userId);
-                replaceItems(conn, cartId, cart);
+                String cartId = cart.getCartId();
+                if (cartId == null || !touchCart(conn, cartId)) {
+                    // Unknown or deleted carts row: resolve it and rewrite every line
+                    cartId = findCartId(conn, userId);
+                    cartId = cartId != null && touchCart(conn, cartId) ? cartId : createCart(conn, userId);
+                    fullSync = true;
+                }
+
+                List<CartItem> upserts = new ArrayList<>();
+                List<String> deletes = new ArrayList<>();
+                if (fullSync) {
+                    upserts.addAll(cart.getItems());
+                } else {
+                    for (String itemId : dirty) {
+                        CartItem line = cart.getItem(itemId);
+                        if (line != null) {
+                            upserts.add(line);
+                        } else {
+                            deletes.add(itemId);
+                        }
+                    }
+                }
+
+                upsertItems(conn, cartId, upserts);
+                if (fullSync) {
+                    deleteItemsNotIn(conn, cartId, upserts);
+                } else {
+                    deleteItems(conn, cartId, deletes);
+                }
                 conn.commit();
+                cart.markSynced(cartId);
             } catch (SQLException e) {
                 conn.rollback();
                 throw e;
@@ -62,26 +168,6 @@ public class CartRepository {
         }
     }
 
-    private Cart loadCartItems(Connection conn, String cartId) throws SQLException {
-        Cart cart = new Cart();
-        String sql = "SELECT ci.item_id, ci.quantity, ci.price, i.name, i.image_url "
-                + "FROM cart_items ci LEFT JOIN items i ON ci.item_id = i.id WHERE ci.cart_id = ?";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, cartId);
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    cart.addItem(new CartItem(
-                            rs.getString("item_id"),
-                            rs.getString("name") != null ? rs.getString("name") : "",
-                            rs.getBigDecimal("price"),
-                            rs.getInt("quantity"),
-                            rs.getString("image_url")));
-                }
-            }
-        }
-        return cart;
-    }
-
     private String createCart(Connection conn, String userId) throws SQLException {
         String cartId = UUID.randomUUID().toString();
         Timestamp now = Timestamp.from(Instant.now());
@@ -96,13 +182,15 @@ public class CartRepository {
         return cartId;
     }
 
-    private String updateCart(Connection conn, String cartId) throws SQLException {
+    /**
+     * Bumps updated_at; false if the carts row no longer exists.
+     */
+    private boolean touchCart(Connection conn, String cartId) throws SQLException {
         try (PreparedStatement ps = conn.prepareStatement("UPDATE carts SET updated_at = ? WHERE id = ?")) {
             ps.setTimestamp(1, Timestamp.from(Instant.now()));
             ps.setString(2, cartId);
-            ps.executeUpdate();
+            return ps.executeUpdate() > 0;
         }
-        return cartId;
     }
 
     public void clearCartForUser(String userId) throws SQLException {
@@ -121,25 +209,140 @@ public class CartRepository {
         }
     }
 
-    private void replaceItems(Connection conn, String cartId, Cart cart) throws SQLException {
-        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM cart_items WHERE cart_id = ?")) {
+    /**
+     * Finds carts not updated since the cutoff, oldest first, in keyset order
+     * of (updated_at, id) after the given position.
+     *
+     * @param afterUpdatedAt updated_at of the last cart seen, null to start
+     * @param afterId ID of the last cart seen
+     * @return cart IDs mapped to their updated_at, in order
+     */
+    public LinkedHashMap<String, Timestamp> findIdleCarts(Timestamp cutoff, Timestamp afterUpdatedAt, String afterId,
+            int limit) throws SQLException {
+        String sql = afterUpdatedAt == null
+                ? "SELECT id, updated_at FROM carts WHERE updated_at < ? ORDER BY updated_at, id LIMIT ?"
+                : "SELECT id, updated_at FROM carts WHERE updated_at < ? "
+                        + "AND (updated_at > ? OR (updated_at = ? AND id > ?)) ORDER BY updated_at, id LIMIT ?";
+
+        LinkedHashMap<String, Timestamp> carts = new LinkedHashMap<>();
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            int i = 1;
+            ps.setTimestamp(i++, cutoff);
+            if (afterUpdatedAt != null) {
+                ps.setTimestamp(i++, afterUpdatedAt);
+                ps.setTimestamp(i++, afterUpdatedAt);
+                ps.setString(i++, afterId);
+            }
+            ps.setInt(i, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    carts.put(rs.getString("id"), rs.getTimestamp("updated_at"));
+                }
+            }
+        }
+        return carts;
+    }
+
+    /**
+     * Deletes the given carts and their lines in one short transaction,
+     * skipping carts updated since the cutoff.
+     *
+     * @return rows removed: {carts, cart_items}
+     */
+    public int[] deleteIdleCarts(List<String> cartIds, Timestamp cutoff) throws SQLException {
+        if (cartIds.isEmpty()) {
+            return new int[] {0, 0};
+        }
+        String placeholders = String.join(", ", Collections.nCopies(cartIds.size(), "?"));
+
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int items;
+                try (PreparedStatement ps = conn.prepareStatement("DELETE ci FROM cart_items ci "
+                        + "JOIN carts c ON c.id = ci.cart_id WHERE c.id IN (" + placeholders + ") AND c.updated_at < ?")) {
+                    bindIdsAndCutoff(ps, cartIds, cutoff);
+                    items = ps.executeUpdate();
+                }
+                int carts;
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "DELETE FROM carts WHERE id IN (" + placeholders + ") AND updated_at < ?")) {
+                    bindIdsAndCutoff(ps, cartIds, cutoff);
+                    carts = ps.executeUpdate();
+                }
+                conn.commit();
+                return new int[] {carts, items};
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private void bindIdsAndCutoff(PreparedStatement ps, List<String> ids, Timestamp cutoff) throws SQLException {
+        int i = 1;
+        for (String id : ids) {
+            ps.setString(i++, id);
+        }
+        ps.setTimestamp(i, cutoff);
+    }
+
+    private void upsertItems(Connection conn, String cartId, List<CartItem> lines) throws SQLException {
+        if (lines.isEmpty()) {
+            return;
+        }
+
+        StringBuilder sql = new StringBuilder(
+                "INSERT INTO cart_items (cart_id, item_id, quantity, price, created_at, updated_at) VALUES ");
+        sql.append(String.join(", ", Collections.nCopies(lines.size(), "(?, ?, ?, ?, ?, ?)")));
+        sql.append(" AS new ON DUPLICATE KEY UPDATE quantity = new.quantity, price = new.price,"
+                + " updated_at = new.updated_at");
+
+        try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            Timestamp now = Timestamp.from(Instant.now());
+            int i = 1;
+            for (CartItem ci : lines) {
+                ps.setString(i++, cartId);
+                ps.setString(i++, ci.getItemId());
+                ps.setInt(i++, ci.getQuantity());
+                ps.setBigDecimal(i++, ci.getItemPrice());
+                ps.setTimestamp(i++, now);
+                ps.setTimestamp(i++, now);
+            }
+            ps.executeUpdate();
+        }
+    }
+
+    private void deleteItems(Connection conn, String cartId, List<String> itemIds) throws SQLException {
+        if (itemIds.isEmpty()) {
+            return;
+        }
+
+        String sql = "DELETE FROM cart_items WHERE cart_id = ? AND item_id IN ("
+                + String.join(", ", Collections.nCopies(itemIds.size(), "?")) + ")";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, cartId);
+            for (int i = 0; i < itemIds.size(); i++) {
+                ps.setString(i + 2, itemIds.get(i));
+            }
             ps.executeUpdate();
         }
+    }
 
-        String sql = "INSERT INTO cart_items (cart_id, item_id, quantity, price, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?)";
+    private void deleteItemsNotIn(Connection conn, String cartId, List<CartItem> kept) throws SQLException {
+        String sql = "DELETE FROM cart_items WHERE cart_id = ?";
+        if (!kept.isEmpty()) {
+            sql += " AND item_id NOT IN (" + String.join(", ", Collections.nCopies(kept.size(), "?")) + ")";
+        }
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            Timestamp now = Timestamp.from(Instant.now());
-            for (CartItem ci : cart.getItems()) {
-                ps.setString(1, cartId);
-                ps.setString(2, ci.getItemId());
-                ps.setInt(3, ci.getQuantity());
-                ps.setBigDecimal(4, ci.getItemPrice());
-                ps.setTimestamp(5, now);
-                ps.setTimestamp(6, now);
-                ps.addBatch();
+            ps.setString(1, cartId);
+            for (int i = 0; i < kept.size(); i++) {
+                ps.setString(i + 2, kept.get(i).getItemId());
             }
-            ps.executeBatch();
+            ps.executeUpdate();
         }
     }
 }
@@ -1,5 +1,6 @@
 package com.combiphar.core.repository;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -39,6 +40,25 @@ public class CategoryRepository {
         return categories;
     }
 
+    /**
+     * Stream all categories to the callback without collecting them
+     */
+    public void forEach(RowCallback<Category> callback) throws IOException {
+        String sql = "SELECT * FROM categories ORDER BY created_at DESC";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement stmt = DatabaseConfig.prepareStreaming(conn, sql)) {
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    callback.accept(mapResultSetToCategory(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error streaming categories", e);
+        }
+    }
+
     /**
      * Find categories by status
      */
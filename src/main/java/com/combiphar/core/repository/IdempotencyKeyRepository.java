@@ -0,0 +1,117 @@
+package com.combiphar.core.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Optional;
+
+import com.combiphar.core.config.DatabaseConfig;
+import com.combiphar.core.model.IdempotencyKey;
+
+/**
+ * Repository for idempotency_keys. The primary key on the key column lets
+ * only one request claim a key, whichever application node it reaches.
+ */
+public class IdempotencyKeyRepository {
+
+    /**
+     * Records the key as pending for the user, claimed at the given instant.
+     *
+     * @return false if the key already exists
+     */
+    public boolean insertPending(String key, String userId, Instant now) throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement ps = conn.prepareStatement(
+                        "INSERT IGNORE INTO idempotency_keys (idempotency_key, user_id, status, created_at) "
+                                + "VALUES (?, ?, 'PENDING', ?)")) {
+            ps.setString(1, key);
+            ps.setString(2, userId);
+            ps.setTimestamp(3, Timestamp.from(now));
+            return ps.executeUpdate() > 0;
+        }
+    }
+
+    public Optional<IdempotencyKey> findByKey(String key) throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement ps = conn.prepareStatement(
+                        "SELECT idempotency_key, user_id, status, response, created_at FROM idempotency_keys "
+                                + "WHERE idempotency_key = ?")) {
+            ps.setString(1, key);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(new IdempotencyKey(
+                            rs.getString("idempotency_key"),
+                            rs.getString("user_id"),
+                            IdempotencyKey.Status.valueOf(rs.getString("status")),
+                            rs.getString("response"),
+                            rs.getTimestamp("created_at").toInstant()));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Restarts a pending key of the user that was claimed before the given
+     * instant, for a request whose original attempt died without finishing.
+     *
+     * @return true if this caller now owns the key
+     */
+    public boolean reclaimStale(String key, String userId, Instant claimedBefore, Instant now) throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement ps = conn.prepareStatement(
+                        "UPDATE idempotency_keys SET created_at = ? "
+                                + "WHERE idempotency_key = ? AND user_id = ? AND status = 'PENDING' AND created_at < ?")) {
+            ps.setTimestamp(1, Timestamp.from(now));
+            ps.setString(2, key);
+            ps.setString(3, userId);
+            ps.setTimestamp(4, Timestamp.from(claimedBefore));
+            return ps.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Stores the response of the finished request on the caller's
+     * connection, so it commits with the work the key guards.
+     *
+     * @return false if the key is no longer pending
+     */
+    public boolean complete(Connection conn, String key, String response) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE idempotency_keys SET status = 'COMPLETED', response = ?, completed_at = CURRENT_TIMESTAMP "
+                        + "WHERE idempotency_key = ? AND status = 'PENDING'")) {
+            ps.setString(1, response);
+            ps.setString(2, key);
+            return ps.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Deletes a key that is still pending, so the request can be retried.
+     */
+    public void deletePending(String key) throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement ps = conn.prepareStatement(
+                        "DELETE FROM idempotency_keys WHERE idempotency_key = ? AND status = 'PENDING'")) {
+            ps.setString(1, key);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Deletes keys claimed before the given instant.
+     *
+     * @return number of rows removed
+     */
+    public int deleteOlderThan(Instant cutoff) throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement ps = conn.prepareStatement(
+                        "DELETE FROM idempotency_keys WHERE created_at < ?")) {
+            ps.setTimestamp(1, Timestamp.from(cutoff));
+            return ps.executeUpdate();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.combiphar.core.repository;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -7,18 +8,32 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.IntUnaryOperator;
 
 import com.combiphar.core.config.DatabaseConfig;
+import com.combiphar.core.model.CatalogFilter;
 import com.combiphar.core.model.Item;
+import com.combiphar.core.model.ItemSummary;
+import com.combiphar.core.model.PriceBucket;
+import com.combiphar.core.util.CatalogCursor;
 
 /**
  * Repository for Item data access.
  */
 public class ItemRepository {
 
+    /** Columns of the listing projection; the description is cut server-side. */
+    private static final String SUMMARY_COLUMNS = "id, category_id, name, `condition`, LEFT(description, "
+            + ItemSummary.EXCERPT_LENGTH + ") AS excerpt, image_url, price, stock, eligibility_status, "
+            + "is_published, created_at";
+
     /**
      * Find all items
      */
@@ -60,6 +75,35 @@ public class ItemRepository {
         return Optional.empty();
     }
 
+    /**
+     * Find listing summaries for a set of item IDs in one query, keyed by ID.
+     * IDs without a row are missing from the map.
+     */
+    public Map<String, ItemSummary> findSummariesByIds(Collection<String> ids) {
+        Map<String, ItemSummary> items = new HashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return items;
+        }
+
+        String sql = "SELECT " + SUMMARY_COLUMNS + " FROM items WHERE id IN ("
+                + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            bindParams(stmt, new ArrayList<>(ids));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ItemSummary item = mapResultSetToSummary(rs);
+                    items.put(item.getId(), item);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error finding items by ids", e);
+        }
+        return items;
+    }
+
     /**
      * Find items by category ID
      */
@@ -124,6 +168,99 @@ public class ItemRepository {
         return items;
     }
 
+    /**
+     * Find all items as listing summaries
+     */
+    public List<ItemSummary> findAllSummaries() {
+        String sql = "SELECT " + SUMMARY_COLUMNS + " FROM items ORDER BY created_at DESC";
+        List<ItemSummary> items = new ArrayList<>();
+
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql);
+                ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                items.add(mapResultSetToSummary(rs));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error finding item summaries", e);
+        }
+        return items;
+    }
+
+    /**
+     * Find published items as listing summaries
+     */
+    public List<ItemSummary> findPublishedSummaries() {
+        String sql = "SELECT " + SUMMARY_COLUMNS
+                + " FROM items WHERE is_published = TRUE AND eligibility_status = 'ELIGIBLE' ORDER BY created_at DESC";
+        List<ItemSummary> items = new ArrayList<>();
+
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql);
+                ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                items.add(mapResultSetToSummary(rs));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error finding published item summaries", e);
+        }
+        return items;
+    }
+
+    /**
+     * Stream items to the callback without collecting them, optionally
+     * filtered by category or eligibility status (category wins)
+     */
+    public void forEachItem(String categoryId, String status, RowCallback<Item> callback) throws IOException {
+        String sql = "SELECT * FROM items";
+        String param = null;
+        if (categoryId != null) {
+            sql += " WHERE category_id = ?";
+            param = categoryId;
+        } else if (status != null) {
+            sql += " WHERE eligibility_status = ?";
+            param = status;
+        }
+        sql += " ORDER BY created_at DESC";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement stmt = DatabaseConfig.prepareStreaming(conn, sql)) {
+
+            if (param != null) {
+                stmt.setString(1, param);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    callback.accept(mapResultSetToItem(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error streaming items", e);
+        }
+    }
+
+    /**
+     * Stream published items as listing summaries to the callback
+     */
+    public void forEachPublishedSummary(RowCallback<ItemSummary> callback) throws IOException {
+        String sql = "SELECT " + SUMMARY_COLUMNS
+                + " FROM items WHERE is_published = TRUE AND eligibility_status = 'ELIGIBLE' ORDER BY created_at DESC";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement stmt = DatabaseConfig.prepareStreaming(conn, sql)) {
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    callback.accept(mapResultSetToSummary(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error streaming published item summaries", e);
+        }
+    }
+
     /**
      * Save new item
      */
@@ -225,6 +362,54 @@ public class ItemRepository {
         }
     }
 
+    /**
+     * Takes units off an item's stock only if that many are left, inside the
+     * caller's transaction.
+     *
+     * @return false if the item is missing or has fewer units
+     */
+    public boolean decrementStock(Connection conn, String id, int quantity) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE items SET stock = stock - ? WHERE id = ? AND stock >= ?")) {
+            stmt.setInt(1, quantity);
+            stmt.setString(2, id);
+            stmt.setInt(3, quantity);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Changes an item's stock based on its current value, with the row locked
+     * between the read and the write.
+     *
+     * @return {old stock, new stock}, or null if the item does not exist
+     */
+    public int[] changeStock(String id, IntUnaryOperator change) {
+        try {
+            return DatabaseConfig.inTransaction(conn -> {
+                int current;
+                try (PreparedStatement stmt = conn.prepareStatement("SELECT stock FROM items WHERE id = ? FOR UPDATE")) {
+                    stmt.setString(1, id);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (!rs.next()) {
+                            return null;
+                        }
+                        current = rs.getInt("stock");
+                    }
+                }
+                int updated = change.applyAsInt(current);
+                try (PreparedStatement stmt = conn.prepareStatement("UPDATE items SET stock = ? WHERE id = ?")) {
+                    stmt.setInt(1, updated);
+                    stmt.setString(2, id);
+                    stmt.executeUpdate();
+                }
+                return new int[] {current, updated};
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Error updating item stock", e);
+        }
+    }
+
     /**
      * Delete item by ID
      */
@@ -280,42 +465,43 @@ public class ItemRepository {
     }
 
     /**
-     * Search published items with filters for customer catalog
+     * Search published items with filters for customer catalog, one keyset
+     * page at a time (newest first).
      * 
-     * @param searchQuery search term for name (can be null)
-     * @param categoryId  filter by category (can be null)
-     * @return list of matching published items
+     * @param filter text and facet filters
+     * @param after  cursor of the previous page's last row (null for the first
+     *               page)
+     * @param limit  maximum number of rows to return
+     * @return list of matching published items as listing summaries
      */
-    public List<Item> searchPublishedItems(String searchQuery, String categoryId) {
-        StringBuilder sql = new StringBuilder();
-        sql.append("SELECT * FROM items WHERE is_published = TRUE AND eligibility_status = 'ELIGIBLE' AND stock > 0");
-
-        if (searchQuery != null && !searchQuery.trim().isEmpty()) {
-            sql.append(" AND (name LIKE ? OR description LIKE ?)");
+    public List<ItemSummary> searchPublishedItems(CatalogFilter filter, CatalogCursor after, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT " + SUMMARY_COLUMNS + " FROM items");
+        List<Object> params = new ArrayList<>();
+        appendSearchFilters(sql, params, filter);
+
+        if (after != null && after.getCreatedAt() == null) {
+            // Rows without created_at come last in DESC order
+            sql.append(" AND created_at IS NULL AND id < ?");
+            params.add(after.getId());
+        } else if (after != null) {
+            sql.append(" AND (created_at < ? OR (created_at = ? AND id < ?) OR created_at IS NULL)");
+            Timestamp afterCreatedAt = Timestamp.valueOf(after.getCreatedAt());
+            params.add(afterCreatedAt);
+            params.add(afterCreatedAt);
+            params.add(after.getId());
         }
-        if (categoryId != null && !categoryId.trim().isEmpty()) {
-            sql.append(" AND category_id = ?");
-        }
-        sql.append(" ORDER BY created_at DESC");
+        sql.append(" ORDER BY created_at DESC, id DESC LIMIT ?");
+        params.add(limit);
 
-        List<Item> items = new ArrayList<>();
+        List<ItemSummary> items = new ArrayList<>();
 
         try (Connection conn = DatabaseConfig.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
 
-            int paramIndex = 1;
-            if (searchQuery != null && !searchQuery.trim().isEmpty()) {
-                String searchPattern = "%" + searchQuery.trim() + "%";
-                stmt.setString(paramIndex++, searchPattern);
-                stmt.setString(paramIndex++, searchPattern);
-            }
-            if (categoryId != null && !categoryId.trim().isEmpty()) {
-                stmt.setString(paramIndex++, categoryId);
-            }
-
+            bindParams(stmt, params);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    items.add(mapResultSetToItem(rs));
+                    items.add(mapResultSetToSummary(rs));
                 }
             }
         } catch (SQLException e) {
@@ -324,6 +510,63 @@ public class ItemRepository {
         return items;
     }
 
+    /**
+     * Count published items matching the catalog filters
+     */
+    public int countPublishedItems(CatalogFilter filter) {
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM items");
+        List<Object> params = new ArrayList<>();
+        appendSearchFilters(sql, params, filter);
+
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+
+            bindParams(stmt, params);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error counting published items", e);
+        }
+        return 0;
+    }
+
+    private void appendSearchFilters(StringBuilder sql, List<Object> params, CatalogFilter filter) {
+        sql.append(" WHERE is_published = TRUE AND eligibility_status = 'ELIGIBLE' AND stock > 0");
+
+        if (filter.getSearchQuery() != null) {
+            sql.append(" AND (name LIKE ? OR description LIKE ?)");
+            String searchPattern = "%" + filter.getSearchQuery() + "%";
+            params.add(searchPattern);
+            params.add(searchPattern);
+        }
+        if (filter.getCategoryId() != null) {
+            sql.append(" AND category_id = ?");
+            params.add(filter.getCategoryId());
+        }
+        if (filter.getCondition() != null) {
+            sql.append(" AND `condition` = ?");
+            params.add(filter.getCondition());
+        }
+        PriceBucket bucket = filter.getPriceBucket();
+        if (bucket != null && bucket.getMin() != null) {
+            sql.append(" AND price >= ?");
+            params.add(bucket.getMin());
+        }
+        if (bucket != null && bucket.getMax() != null) {
+            sql.append(" AND price < ?");
+            params.add(bucket.getMax());
+        }
+    }
+
+    private void bindParams(PreparedStatement stmt, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            stmt.setObject(i + 1, params.get(i));
+        }
+    }
+
     /**
      * Map ResultSet to Item object
      */
@@ -352,4 +595,28 @@ public class ItemRepository {
 
         return item;
     }
+
+    /**
+     * Map ResultSet of a {@link #SUMMARY_COLUMNS} query to ItemSummary
+     */
+    private ItemSummary mapResultSetToSummary(ResultSet rs) throws SQLException {
+        ItemSummary item = new ItemSummary();
+        item.setId(rs.getString("id"));
+        item.setCategoryId(rs.getString("category_id"));
+        item.setName(rs.getString("name"));
+        item.setCondition(rs.getString("condition"));
+        item.setExcerpt(rs.getString("excerpt"));
+        item.setImageUrl(rs.getString("image_url"));
+        item.setPrice(rs.getBigDecimal("price"));
+        item.setStock(rs.getInt("stock"));
+        item.setEligibilityStatus(rs.getString("eligibility_status"));
+        item.setIsPublished(rs.getBoolean("is_published"));
+
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        if (createdAt != null) {
+            item.setCreatedAt(createdAt.toLocalDateTime());
+        }
+
+        return item;
+    }
 }
@@ -3,6 +3,12 @@ package com.combiphar.core.repository;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import com.combiphar.core.config.DatabaseConfig;
 import com.combiphar.core.model.OrderItem;
@@ -16,40 +22,88 @@ public class OrderItemRepository {
      * Menyimpan order item ke database.
      */
     public void save(OrderItem orderItem) {
-        String sql = "INSERT INTO order_items (id, order_id, item_id, quantity, unit_price, subtotal) "
-                + "VALUES (?, ?, ?, ?, ?, ?)";
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            saveAll(conn, List.of(orderItem));
+        } catch (SQLException e) {
+            throw new RuntimeException("Error saving order item: " + e.getMessage(), e);
+        }
+    }
 
-        try (Connection conn = DatabaseConfig.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+    /**
+     * Menyimpan semua item satu order dalam satu JDBC batch, memakai koneksi
+     * (dan transaksi) pemanggil.
+     */
+    public void saveAll(Connection conn, List<OrderItem> orderItems) throws SQLException {
+        if (orderItems.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO order_items (id, order_id, line_no, item_id, quantity, unit_price, subtotal) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)";
 
-            stmt.setString(1, orderItem.getId());
-            stmt.setString(2, orderItem.getOrderId());
-            stmt.setString(3, orderItem.getItemId());
-            stmt.setInt(4, orderItem.getQuantity());
-            stmt.setBigDecimal(5, orderItem.getUnitPrice());
-            stmt.setBigDecimal(6, orderItem.getSubtotal());
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (OrderItem orderItem : orderItems) {
+                stmt.setString(1, orderItem.getId());
+                stmt.setString(2, orderItem.getOrderId());
+                stmt.setInt(3, orderItem.getLineNo());
+                stmt.setString(4, orderItem.getItemId());
+                stmt.setInt(5, orderItem.getQuantity());
+                stmt.setBigDecimal(6, orderItem.getUnitPrice());
+                stmt.setBigDecimal(7, orderItem.getSubtotal());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
 
-            stmt.executeUpdate();
+    /**
+     * Menghitung total kuantitas terjual per item (untuk ranking popularitas).
+     *
+     * @return map item ID ke total kuantitas
+     */
+    public java.util.Map<String, Integer> sumQuantityByItem() {
+        java.util.Map<String, Integer> totals = new java.util.HashMap<>();
+        String sql = "SELECT item_id, SUM(quantity) AS total FROM order_items WHERE item_id IS NOT NULL GROUP BY item_id";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql);
+                java.sql.ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                totals.put(rs.getString("item_id"), rs.getInt("total"));
+            }
         } catch (SQLException e) {
-            throw new RuntimeException("Error saving order item: " + e.getMessage(), e);
+            throw new RuntimeException("Error summing order item quantities: " + e.getMessage(), e);
         }
+        return totals;
     }
 
     /**
      * Mencari semua order items berdasarkan order ID.
      */
     public java.util.List<OrderItem> findByOrderId(String orderId) {
+        return findByOrderId(orderId, 0);
+    }
+
+    /**
+     * Mencari semua order items berdasarkan order ID; query dibatalkan di
+     * server setelah timeoutSeconds detik (0 = tanpa batas).
+     */
+    public java.util.List<OrderItem> findByOrderId(String orderId, int timeoutSeconds) {
         java.util.List<OrderItem> items = new java.util.ArrayList<>();
-        String sql = "SELECT * FROM order_items WHERE order_id = ?";
+        String sql = "SELECT * FROM order_items WHERE order_id = ? ORDER BY line_no, id";
 
         try (Connection conn = DatabaseConfig.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
 
+            stmt.setQueryTimeout(timeoutSeconds);
             stmt.setString(1, orderId);
             try (java.sql.ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
                     OrderItem item = new OrderItem(
                             rs.getString("id"),
                             rs.getString("order_id"),
+                            rs.getInt("line_no"),
                             rs.getString("item_id"),
+                            null,
                             rs.getInt("quantity"),
                             rs.getBigDecimal("unit_price")
                     );
@@ -63,13 +117,14 @@ public class OrderItemRepository {
     }
 
     /**
-     * Mencari nama item pertama dari order dengan join ke tabel items.
+     * Mencari nama item pertama dari order dengan join ke tabel items. Baris
+     * pertama = line_no terkecil; order lama tanpa line_no jatuh ke urutan id.
      */
     public String findFirstItemNameByOrderId(String orderId) {
         String sql = "SELECT i.name FROM order_items oi "
                 + "JOIN items i ON oi.item_id = i.id "
                 + "WHERE oi.order_id = ? "
-                + "LIMIT 1";
+                + "ORDER BY oi.line_no, oi.id LIMIT 1";
 
         try (Connection conn = DatabaseConfig.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
 
@@ -84,4 +139,51 @@ public class OrderItemRepository {
         }
         return null;
     }
+
+    /**
+     * Mencari order items untuk banyak order sekaligus dengan satu query
+     * {@code IN (...)}, beserta nama item (null jika item sudah dihapus).
+     *
+     * @return map order ID ke item-itemnya urut line_no; order tanpa item
+     *         tidak ada di map
+     */
+    public Map<String, List<OrderItem>> findByOrderIds(Collection<String> orderIds) {
+        Map<String, List<OrderItem>> itemsByOrder = new HashMap<>();
+        if (orderIds == null || orderIds.isEmpty()) {
+            return itemsByOrder;
+        }
+        String sql = "SELECT oi.*, i.name AS item_name FROM order_items oi "
+                + "LEFT JOIN items i ON oi.item_id = i.id "
+                + "WHERE oi.order_id IN (" + String.join(", ", Collections.nCopies(orderIds.size(), "?")) + ") "
+                + "ORDER BY oi.line_no, oi.id";
+
+        try (Connection conn = DatabaseConfig.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            bindAll(stmt, orderIds);
+            try (java.sql.ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    OrderItem item = new OrderItem(
+                            rs.getString("id"),
+                            rs.getString("order_id"),
+                            rs.getInt("line_no"),
+                            rs.getString("item_id"),
+                            rs.getString("item_name"),
+                            rs.getInt("quantity"),
+                            rs.getBigDecimal("unit_price")
+                    );
+                    itemsByOrder.computeIfAbsent(item.getOrderId(), id -> new ArrayList<>()).add(item);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error finding order items: " + e.getMessage(), e);
+        }
+        return itemsByOrder;
+    }
+
+    private void bindAll(PreparedStatement stmt, Collection<String> values) throws SQLException {
+        int index = 1;
+        for (String value : values) {
+            stmt.setString(index++, value);
+        }
+    }
 }
@@ -20,11 +20,22 @@ public class OrderRepository {
      * Menyimpan order baru ke database.
      */
     public void save(Order order) {
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            save(conn, order);
+        } catch (SQLException e) {
+            throw new RuntimeException("Error saving order: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Menyimpan order baru memakai koneksi (dan transaksi) pemanggil.
+     */
+    public void save(Connection conn, Order order) throws SQLException {
         String sql = "INSERT INTO orders (id, user_id, address_id, order_number, total_price, "
                 + "payment_method, pickup_method, status_payment, status_order, note, created_at) "
                 + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
-        try (Connection conn = DatabaseConfig.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, order.getId());
             stmt.setString(2, order.getUserId());
@@ -39,8 +50,6 @@ public class OrderRepository {
             stmt.setTimestamp(11, Timestamp.valueOf(order.getCreatedAt()));
 
             stmt.executeUpdate();
-        } catch (SQLException e) {
-            throw new RuntimeException("Error saving order: " + e.getMessage(), e);
         }
     }
 
@@ -117,6 +126,49 @@ public class OrderRepository {
         return orders;
     }
 
+    /**
+     * Mencari satu halaman order milik user, diurutkan dari yang terbaru.
+     *
+     * @param offset jumlah order yang dilewati
+     * @param limit jumlah order maksimum
+     */
+    public java.util.List<Order> findByUserId(String userId, int offset, int limit) {
+        java.util.List<Order> orders = new java.util.ArrayList<>();
+        String sql = "SELECT * FROM orders WHERE user_id = ? ORDER BY created_at DESC, id DESC LIMIT ? OFFSET ?";
+
+        try (Connection conn = DatabaseConfig.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, userId);
+            stmt.setInt(2, limit);
+            stmt.setInt(3, offset);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    orders.add(mapResultSetToOrder(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error finding orders by user: " + e.getMessage(), e);
+        }
+        return orders;
+    }
+
+    /**
+     * Menghitung jumlah order milik user.
+     */
+    public int countByUserId(String userId) {
+        String sql = "SELECT COUNT(*) FROM orders WHERE user_id = ?";
+
+        try (Connection conn = DatabaseConfig.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error counting orders by user: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Mencari semua order.
      */
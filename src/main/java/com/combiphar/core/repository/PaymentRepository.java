@@ -19,10 +19,21 @@ public class PaymentRepository {
      * Menyimpan payment baru ke database.
      */
     public void save(Payment payment) {
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            save(conn, payment);
+        } catch (SQLException e) {
+            throw new RuntimeException("Error saving payment: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Menyimpan payment memakai koneksi (dan transaksi) pemanggil.
+     */
+    public void save(Connection conn, Payment payment) throws SQLException {
         String sql = "INSERT INTO payments (id, order_id, type, bank, amount, status, proof, paid_at, created_at) "
                 + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
-        try (Connection conn = DatabaseConfig.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, payment.getId());
             stmt.setString(2, payment.getOrderId());
@@ -41,8 +52,6 @@ public class PaymentRepository {
             stmt.setTimestamp(9, Timestamp.valueOf(payment.getCreatedAt()));
 
             stmt.executeUpdate();
-        } catch (SQLException e) {
-            throw new RuntimeException("Error saving payment: " + e.getMessage(), e);
         }
     }
 
@@ -91,10 +100,19 @@ public class PaymentRepository {
      * Mencari payment berdasarkan order ID.
      */
     public Optional<Payment> findByOrderId(String orderId) {
+        return findByOrderId(orderId, 0);
+    }
+
+    /**
+     * Mencari payment berdasarkan order ID; query dibatalkan di server
+     * setelah timeoutSeconds detik (0 = tanpa batas).
+     */
+    public Optional<Payment> findByOrderId(String orderId, int timeoutSeconds) {
         String sql = "SELECT * FROM payments WHERE order_id = ?";
 
         try (Connection conn = DatabaseConfig.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
 
+            stmt.setQueryTimeout(timeoutSeconds);
             stmt.setString(1, orderId);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -0,0 +1,15 @@
+package com.combiphar.core.repository;
+
+import java.io.IOException;
+
+/**
+ * Receives rows one at a time from a streaming repository query, while the
+ * ResultSet is still open.
+ *
+ * @param <T> mapped row type
+ */
+@FunctionalInterface
+public interface RowCallback<T> {
+
+    void accept(T row) throws IOException;
+}
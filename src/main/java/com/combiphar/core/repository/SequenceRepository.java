@@ -0,0 +1,53 @@
+package com.combiphar.core.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import com.combiphar.core.config.DatabaseConfig;
+
+/**
+ * Repository untuk number_sequences: counter bernama yang dibagikan dalam
+ * blok, sehingga pemakai tidak perlu ke database untuk setiap nomor.
+ */
+public class SequenceRepository {
+
+    /**
+     * Reserves the next block of values of a sequence with one atomic
+     * UPDATE, creating the sequence at 1 if it does not exist yet.
+     *
+     * @return the first value of the block; the block is [first, first + size)
+     */
+    public long allocate(String name, int size) {
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            if (!bump(conn, name, size)) {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT IGNORE INTO number_sequences (name, next_value) VALUES (?, 1)")) {
+                    ps.setString(1, name);
+                    ps.executeUpdate();
+                }
+                if (!bump(conn, name, size)) {
+                    throw new SQLException("Sequence " + name + " could not be created");
+                }
+            }
+            // LAST_INSERT_ID(expr) is per connection, so this reads our own block start
+            try (PreparedStatement ps = conn.prepareStatement("SELECT LAST_INSERT_ID()");
+                    ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error allocating sequence " + name + ": " + e.getMessage(), e);
+        }
+    }
+
+    private boolean bump(Connection conn, String name, int size) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE number_sequences SET next_value = LAST_INSERT_ID(next_value) + ? WHERE name = ?")) {
+            ps.setInt(1, size);
+            ps.setString(2, name);
+            return ps.executeUpdate() > 0;
+        }
+    }
+}
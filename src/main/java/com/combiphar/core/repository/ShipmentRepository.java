@@ -6,7 +6,11 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import com.combiphar.core.config.DatabaseConfig;
@@ -77,10 +81,19 @@ public class ShipmentRepository {
      * @return Optional berisi shipment jika ditemukan
      */
     public Optional<Shipment> findByOrderId(String orderId) {
+        return findByOrderId(orderId, 0);
+    }
+
+    /**
+     * Mencari shipment berdasarkan order ID; query dibatalkan di server
+     * setelah timeoutSeconds detik (0 = tanpa batas).
+     */
+    public Optional<Shipment> findByOrderId(String orderId, int timeoutSeconds) {
         String sql = "SELECT * FROM shipments WHERE order_id = ?";
 
         try (Connection conn = DatabaseConfig.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
 
+            stmt.setQueryTimeout(timeoutSeconds);
             stmt.setString(1, orderId);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -93,6 +106,39 @@ public class ShipmentRepository {
         return Optional.empty();
     }
 
+    /**
+     * Mencari shipment untuk banyak order sekaligus dengan satu query
+     * {@code IN (...)}.
+     *
+     * @param orderIds ID order
+     * @return map order ID ke shipment; order tanpa shipment tidak ada di map
+     */
+    public Map<String, Shipment> findByOrderIds(Collection<String> orderIds) {
+        Map<String, Shipment> shipments = new HashMap<>();
+        if (orderIds == null || orderIds.isEmpty()) {
+            return shipments;
+        }
+        String sql = "SELECT * FROM shipments WHERE order_id IN ("
+                + String.join(", ", Collections.nCopies(orderIds.size(), "?")) + ")";
+
+        try (Connection conn = DatabaseConfig.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            for (String orderId : orderIds) {
+                stmt.setString(index++, orderId);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Shipment shipment = mapResultSet(rs);
+                    shipments.putIfAbsent(shipment.getOrderId(), shipment);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error finding shipments by orders: " + e.getMessage(), e);
+        }
+        return shipments;
+    }
+
     /**
      * Mencari semua shipment, diurutkan dari yang terbaru.
      *
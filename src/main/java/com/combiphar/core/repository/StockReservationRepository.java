@@ -0,0 +1,124 @@
+package com.combiphar.core.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import com.combiphar.core.config.DatabaseConfig;
+import com.combiphar.core.model.StockReservation;
+
+/**
+ * Repository for stock_reservations, the durable copy of the in-memory hold
+ * table. One row per (item_id, holder_id).
+ */
+public class StockReservationRepository {
+
+    /**
+     * Inserts the hold or moves an existing one to the new quantity and
+     * expiry.
+     */
+    public void upsert(StockReservation reservation) throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            upsert(conn, reservation);
+        }
+    }
+
+    private void upsert(Connection conn, StockReservation reservation) throws SQLException {
+        String sql = "INSERT INTO stock_reservations (item_id, holder_id, quantity, expires_at) VALUES (?, ?, ?, ?) AS new "
+                + "ON DUPLICATE KEY UPDATE quantity = new.quantity, expires_at = new.expires_at";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, reservation.getItemId());
+            ps.setString(2, reservation.getHolderId());
+            ps.setInt(3, reservation.getQuantity());
+            ps.setTimestamp(4, Timestamp.from(reservation.getExpiresAt()));
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Moves holds from one holder to another in one transaction: deletes the
+     * old holder's rows for the moved items and writes the moved holds.
+     *
+     * @param moved the holds as they are now, keyed by the new holder
+     */
+    public void transfer(String fromHolderId, List<StockReservation> moved) throws SQLException {
+        if (moved.isEmpty()) {
+            return;
+        }
+        DatabaseConfig.inTransaction(conn -> {
+            delete(conn, fromHolderId, moved.stream().map(StockReservation::getItemId).toList());
+            for (StockReservation reservation : moved) {
+                upsert(conn, reservation);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Deletes the holder's holds on the given items.
+     */
+    public void delete(String holderId, Collection<String> itemIds) throws SQLException {
+        if (holderId == null || itemIds == null || itemIds.isEmpty()) {
+            return;
+        }
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            delete(conn, holderId, itemIds);
+        }
+    }
+
+    private void delete(Connection conn, String holderId, Collection<String> itemIds) throws SQLException {
+        String placeholders = String.join(",", Collections.nCopies(itemIds.size(), "?"));
+        String sql = "DELETE FROM stock_reservations WHERE holder_id = ? AND item_id IN (" + placeholders + ")";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            int index = 1;
+            ps.setString(index++, holderId);
+            for (String itemId : itemIds) {
+                ps.setString(index++, itemId);
+            }
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Deletes holds that expired before the given instant.
+     *
+     * @return number of rows removed
+     */
+    public int deleteExpired(Instant now) throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement ps = conn.prepareStatement(
+                        "DELETE FROM stock_reservations WHERE expires_at <= ?")) {
+            ps.setTimestamp(1, Timestamp.from(now));
+            return ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Returns the holds still live at the given instant.
+     */
+    public List<StockReservation> findLive(Instant now) throws SQLException {
+        List<StockReservation> reservations = new ArrayList<>();
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement ps = conn.prepareStatement(
+                        "SELECT item_id, holder_id, quantity, expires_at FROM stock_reservations WHERE expires_at > ?")) {
+            ps.setTimestamp(1, Timestamp.from(now));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    reservations.add(new StockReservation(
+                            rs.getString("item_id"),
+                            rs.getString("holder_id"),
+                            rs.getInt("quantity"),
+                            rs.getTimestamp("expires_at").toInstant()));
+                }
+            }
+        }
+        return reservations;
+    }
+}
@@ -0,0 +1,144 @@
+package com.combiphar.core.service;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.combiphar.core.repository.CartRepository;
+import com.combiphar.core.util.EnvConfig;
+
+/**
+ * Background job deleting carts nobody touched for {@link #IDLE_AGE}. Carts
+ * are walked in (updated_at, id) order and deleted {@link #CHUNK_SIZE} at a
+ * time, each chunk in its own short transaction with a pause after it, so
+ * cart_items is never locked for long. Runs every
+ * {@link #REAP_INTERVAL_MINUTES} and on demand from the admin endpoint; runs
+ * never overlap.
+ *
+ * A session cart whose row was reaped is written in full on its next save.
+ */
+public final class CartReaper {
+
+    /** Idle time after which a cart is deleted, overridable with CART_IDLE_DAYS. */
+    private static final Duration IDLE_AGE = Duration.ofDays(Math.max(1, EnvConfig.getLong("CART_IDLE_DAYS", 30)));
+    /** Pause between scheduled runs, overridable with CART_REAPER_INTERVAL_MINUTES. */
+    private static final long REAP_INTERVAL_MINUTES = Math.max(1, EnvConfig.getLong("CART_REAPER_INTERVAL_MINUTES", 60));
+    /** Carts deleted per transaction. */
+    private static final int CHUNK_SIZE = 200;
+    /** Pause between chunks so other cart writes get the locks. */
+    private static final long CHUNK_PAUSE_MS = 50;
+
+    private static final CartRepository cartRepository = new CartRepository();
+
+    private static final AtomicLong runs = new AtomicLong();
+    private static final AtomicLong cartsRemoved = new AtomicLong();
+    private static final AtomicLong cartItemsRemoved = new AtomicLong();
+    private static volatile Map<String, Object> lastRun;
+
+    private static ScheduledExecutorService scheduler;
+
+    private CartReaper() {
+    }
+
+    /**
+     * Starts the scheduled runs. Safe to call more than once.
+     */
+    public static synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cart-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(CartReaper::reap,
+                REAP_INTERVAL_MINUTES, REAP_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Deletes every cart idle past the cutoff, chunk by chunk. Waits for a
+     * run already in progress.
+     *
+     * @return the run's report: cutoff, chunks, rows removed per table,
+     *         elapsed time and the error that stopped it, if any
+     */
+    public static synchronized Map<String, Object> reap() {
+        long start = System.nanoTime();
+        Timestamp cutoff = Timestamp.from(Instant.now().minus(IDLE_AGE));
+        int carts = 0;
+        int items = 0;
+        int chunks = 0;
+        String error = null;
+
+        Timestamp afterUpdatedAt = null;
+        String afterId = null;
+        try {
+            while (true) {
+                LinkedHashMap<String, Timestamp> idle =
+                        cartRepository.findIdleCarts(cutoff, afterUpdatedAt, afterId, CHUNK_SIZE);
+                if (idle.isEmpty()) {
+                    break;
+                }
+                List<String> cartIds = new ArrayList<>(idle.keySet());
+                int[] removed = cartRepository.deleteIdleCarts(cartIds, cutoff);
+                carts += removed[0];
+                items += removed[1];
+                chunks++;
+
+                afterId = cartIds.get(cartIds.size() - 1);
+                afterUpdatedAt = idle.get(afterId);
+                if (idle.size() < CHUNK_SIZE) {
+                    break;
+                }
+                Thread.sleep(CHUNK_PAUSE_MS);
+            }
+        } catch (SQLException e) {
+            error = e.getMessage();
+            System.err.println("[CartReaper] stopped after " + chunks + " chunks: " + error);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = "interrupted";
+        }
+
+        runs.incrementAndGet();
+        cartsRemoved.addAndGet(carts);
+        cartItemsRemoved.addAndGet(items);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("cutoff", cutoff.toLocalDateTime().toString());
+        report.put("chunks", chunks);
+        report.put("carts", carts);
+        report.put("cartItems", items);
+        report.put("elapsedMs", (System.nanoTime() - start) / 1_000_000);
+        report.put("error", error);
+        lastRun = report;
+
+        System.out.println("[CartReaper] removed " + carts + " carts and " + items + " cart lines idle since "
+                + cutoff.toLocalDateTime());
+        return report;
+    }
+
+    /**
+     * Counters for the admin metrics endpoint.
+     */
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("idleDays", IDLE_AGE.toDays());
+        stats.put("intervalMinutes", REAP_INTERVAL_MINUTES);
+        stats.put("runs", runs.get());
+        stats.put("cartsRemoved", cartsRemoved.get());
+        stats.put("cartItemsRemoved", cartItemsRemoved.get());
+        stats.put("lastRun", lastRun);
+        return stats;
+    }
+}
@@ -1,21 +1,36 @@
 package com.combiphar.core.service;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 import com.combiphar.core.model.Cart;
 import com.combiphar.core.model.CartItem;
+import com.combiphar.core.model.CartOperation;
+import com.combiphar.core.model.CartWarning;
 import com.combiphar.core.model.Item;
+import com.combiphar.core.model.ItemSummary;
 import com.combiphar.core.repository.ItemRepository;
 
 /**
- * Service for shopping cart operations.
+ * Service for shopping cart operations. Adding or changing a line holds its
+ * quantity in {@link StockReservations}; removing it releases the hold.
  */
 public class CartService {
 
+    /** Most operations accepted by {@link #applyBatch(Cart, List)}. */
+    private static final int MAX_BATCH_SIZE = 50;
+
     private final ItemRepository itemRepository;
+    private final CartValidator cartValidator;
 
     public CartService(ItemRepository itemRepository) {
         this.itemRepository = Objects.requireNonNull(itemRepository);
+        this.cartValidator = new CartValidator(itemRepository);
     }
 
     public void addToCart(Cart cart, String itemId, int quantity) {
@@ -26,7 +41,11 @@ public class CartService {
 
         Item item = findItemOrThrow(itemId);
         validateStock(item, quantity);
-        validateEligibility(item);
+        validateEligibility(item.getEligibilityStatus(), item.getIsPublished());
+
+        CartItem existing = cart.getItem(item.getId());
+        int lineQuantity = existing != null ? existing.getQuantity() + quantity : quantity;
+        StockReservations.reserve(item.getId(), cart.getHolderId(), lineQuantity, item.getStock());
 
         cart.addItem(new CartItem(item.getId(), item.getName(), item.getPrice(), quantity));
     }
@@ -36,13 +55,171 @@ public class CartService {
         if (quantity <= 0) {
             throw new IllegalArgumentException("Kuantitas harus lebih dari 0");
         }
-        validateStock(findItemOrThrow(itemId), quantity);
+        Item item = findItemOrThrow(itemId);
+        validateStock(item, quantity);
+        if (cart.getItem(itemId) != null) {
+            StockReservations.reserve(itemId, cart.getHolderId(), quantity, item.getStock());
+        }
         cart.updateQuantity(itemId, quantity);
     }
 
     public void removeFromCart(Cart cart, String itemId) {
         Objects.requireNonNull(cart, "Cart tidak boleh null");
         cart.removeItem(itemId);
+        if (itemId != null) {
+            StockReservations.release(cart.getHolderId(), List.of(itemId));
+        }
+    }
+
+    /**
+     * Applies add/update/remove operations as one edit. The resulting line
+     * quantities are checked against stock with one query and held in
+     * {@link StockReservations}; if any line fails, the cart and its holds
+     * are left as they were. Like {@link #updateCartItemQuantity}, updating
+     * a line that is not in the cart does nothing.
+     *
+     * @throws IllegalArgumentException describing the first invalid operation
+     */
+    public void applyBatch(Cart cart, List<CartOperation> operations) {
+        Objects.requireNonNull(cart, "Cart tidak boleh null");
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("Tidak ada perubahan keranjang");
+        }
+        if (operations.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Maksimal " + MAX_BATCH_SIZE + " perubahan per permintaan");
+        }
+
+        // Final quantity of every touched line, 0 meaning removed
+        Map<String, Integer> planned = new LinkedHashMap<>();
+        Set<String> added = new HashSet<>();
+        for (CartOperation operation : operations) {
+            if (operation == null) {
+                throw new IllegalArgumentException("Format perubahan keranjang tidak valid");
+            }
+            CartOperation.Action action = CartOperation.Action.fromParam(operation.getAction());
+            String itemId = operation.getItemId();
+            if (itemId == null || itemId.isBlank()) {
+                throw new IllegalArgumentException("Item ID tidak boleh kosong");
+            }
+            Integer quantity = operation.getQuantity();
+            if (action != CartOperation.Action.REMOVE && (quantity == null || quantity <= 0)) {
+                throw new IllegalArgumentException("Kuantitas harus lebih dari 0");
+            }
+
+            CartItem line = cart.getItem(itemId);
+            int current = planned.containsKey(itemId) ? planned.get(itemId) : line != null ? line.getQuantity() : 0;
+            switch (action) {
+                case ADD -> {
+                    planned.put(itemId, current + quantity);
+                    added.add(itemId);
+                }
+                case UPDATE -> {
+                    if (current > 0) {
+                        planned.put(itemId, quantity);
+                    }
+                }
+                case REMOVE -> planned.put(itemId, 0);
+            }
+        }
+
+        List<String> kept = planned.entrySet().stream()
+                .filter(entry -> entry.getValue() > 0)
+                .map(Map.Entry::getKey)
+                .toList();
+        Map<String, ItemSummary> items = itemRepository.findSummariesByIds(kept);
+        for (String itemId : kept) {
+            ItemSummary item = items.get(itemId);
+            if (item == null) {
+                throw new IllegalArgumentException("Produk tidak ditemukan");
+            }
+            if (item.getStock() == null || item.getStock() < planned.get(itemId)) {
+                throw new IllegalArgumentException("Stok " + item.getName() + " tidak mencukupi. Tersedia: "
+                        + (item.getStock() != null ? item.getStock() : 0));
+            }
+            if (added.contains(itemId)) {
+                validateEligibility(item.getEligibilityStatus(), item.getIsPublished());
+            }
+        }
+
+        List<String> reserved = new ArrayList<>();
+        for (String itemId : kept) {
+            ItemSummary item = items.get(itemId);
+            if (!StockReservations.tryReserve(itemId, cart.getHolderId(), planned.get(itemId), item.getStock())) {
+                restoreHolds(cart, reserved, items);
+                throw new IllegalArgumentException("Stok " + item.getName() + " sedang dipesan pelanggan lain. Tersedia: "
+                        + StockReservations.available(itemId, item.getStock(), cart.getHolderId()));
+            }
+            reserved.add(itemId);
+        }
+
+        List<String> removed = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : planned.entrySet()) {
+            String itemId = entry.getKey();
+            int quantity = entry.getValue();
+            CartItem line = cart.getItem(itemId);
+            if (quantity == 0) {
+                if (line != null) {
+                    cart.removeItem(itemId);
+                    removed.add(itemId);
+                }
+            } else if (line == null) {
+                ItemSummary item = items.get(itemId);
+                cart.addItem(new CartItem(itemId, item.getName(), item.getPrice(), quantity, item.getImageUrl()));
+            } else if (line.getQuantity() != quantity) {
+                cart.updateQuantity(itemId, quantity);
+            }
+        }
+        StockReservations.release(cart.getHolderId(), removed);
+    }
+
+    /**
+     * Empties the cart and releases its stock holds.
+     */
+    public void clearCart(Cart cart) {
+        Objects.requireNonNull(cart, "Cart tidak boleh null");
+        List<String> itemIds = cart.getItems().stream().map(CartItem::getItemId).toList();
+        cart.clear();
+        StockReservations.release(cart.getHolderId(), itemIds);
+    }
+
+    /**
+     * Checks cart lines against already loaded item rows, see
+     * {@link CartValidator#check(Cart, Map)}.
+     */
+    public List<CartWarning> checkCart(Cart cart, Map<String, ItemSummary> currentItems) {
+        return cartValidator.check(Objects.requireNonNull(cart, "Cart tidak boleh null"), currentItems);
+    }
+
+    /**
+     * Hands a cart built as a guest to the user who just signed in: its holds
+     * move from the random guest holder to the user, and holds the user left
+     * on items outside the cart are released.
+     */
+    public void assignToUser(Cart cart, String userId) {
+        synchronized (cart) {
+            String guestHolderId = cart.getHolderId();
+            cart.setHolderId(userId);
+            StockReservations.transfer(guestHolderId, userId);
+            releaseStaleHolds(cart);
+        }
+    }
+
+    /**
+     * Releases holds the cart's holder placed in earlier sessions for items
+     * that are no longer in the cart. Holds for its current lines are the
+     * cart's own and stay.
+     */
+    public void releaseStaleHolds(Cart cart) {
+        StockReservations.retain(cart.getHolderId(),
+                cart.getItems().stream().map(CartItem::getItemId).toList());
+    }
+
+    /**
+     * Revalidates the whole cart with one query, see
+     * {@link CartValidator#validate(Cart)}.
+     */
+    public List<CartWarning> validateCart(Cart cart) {
+        return cartValidator.validate(cart);
     }
 
     private Item findItemOrThrow(String itemId) {
@@ -58,12 +235,26 @@ public class CartService {
         }
     }
 
-    private void validateEligibility(Item item) {
-        if (!"ELIGIBLE".equalsIgnoreCase(item.getEligibilityStatus())) {
+    private void validateEligibility(String eligibilityStatus, Boolean published) {
+        if (!"ELIGIBLE".equalsIgnoreCase(eligibilityStatus)) {
             throw new IllegalArgumentException("Produk tidak tersedia untuk dijual");
         }
-        if (item.getIsPublished() == null || !item.getIsPublished()) {
+        if (published == null || !published) {
             throw new IllegalArgumentException("Produk tidak dipublikasikan");
         }
     }
+
+    /**
+     * Puts the holds of a failed batch back to the cart's current lines.
+     */
+    private void restoreHolds(Cart cart, List<String> itemIds, Map<String, ItemSummary> items) {
+        for (String itemId : itemIds) {
+            CartItem line = cart.getItem(itemId);
+            if (line != null) {
+                StockReservations.tryReserve(itemId, cart.getHolderId(), line.getQuantity(), items.get(itemId).getStock());
+            } else {
+                StockReservations.release(cart.getHolderId(), List.of(itemId));
+            }
+        }
+    }
 }
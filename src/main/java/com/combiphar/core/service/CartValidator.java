@@ -0,0 +1,133 @@
+package com.combiphar.core.service;
+
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.combiphar.core.model.Cart;
+import com.combiphar.core.model.CartItem;
+import com.combiphar.core.model.CartWarning;
+import com.combiphar.core.model.ItemSummary;
+import com.combiphar.core.repository.ItemRepository;
+
+/**
+ * Validates a whole cart against the current item rows: stock, ELIGIBLE,
+ * is_published and price drift for every line, with one
+ * {@code WHERE id IN (...)} query per cart. Stock counts only units not held
+ * by other carts in {@link StockReservations}.
+ */
+public class CartValidator {
+
+    private final ItemRepository itemRepository;
+
+    public CartValidator(ItemRepository itemRepository) {
+        this.itemRepository = Objects.requireNonNull(itemRepository);
+    }
+
+    /**
+     * Loads the cart's items in one query, checks every line and stores the
+     * warnings on the cart.
+     *
+     * @return the warnings, empty if the cart can be ordered as it is
+     */
+    public List<CartWarning> validate(Cart cart) {
+        List<CartWarning> warnings = check(cart, loadCurrentItems(cart));
+        cart.setWarnings(warnings);
+        return warnings;
+    }
+
+    /**
+     * Like {@link #validate(Cart)}, but lines whose price changed are moved to
+     * the current price and the stock holds of orderable lines are renewed.
+     * Price warnings stay so the customer sees the change.
+     */
+    public List<CartWarning> refresh(Cart cart) {
+        Map<String, ItemSummary> current = loadCurrentItems(cart);
+        List<CartWarning> warnings = new ArrayList<>();
+        for (CartItem line : cart.getItems()) {
+            ItemSummary item = current.get(line.getItemId());
+            CartWarning warning = checkLine(line, item, cart.getHolderId());
+            if (warning == null || !warning.isBlocking()) {
+                if (!StockReservations.tryReserve(line.getItemId(), cart.getHolderId(), line.getQuantity(), item.getStock())) {
+                    warning = outOfStock(line, StockReservations.available(line.getItemId(), item.getStock(), cart.getHolderId()));
+                } else if (warning != null) {
+                    cart.updatePrice(line.getItemId(), item.getPrice());
+                }
+            }
+            if (warning != null) {
+                warnings.add(warning);
+            }
+        }
+        cart.setWarnings(warnings);
+        return warnings;
+    }
+
+    /**
+     * Validates the cart for order creation. Any warning, including a price
+     * change since checkout, rejects the order.
+     *
+     * @throws IllegalArgumentException with the first warning's message
+     */
+    public void requireValid(Cart cart) {
+        List<CartWarning> warnings = validate(cart);
+        if (!warnings.isEmpty()) {
+            throw new IllegalArgumentException(warnings.get(0).getMessage()
+                    + ". Silakan periksa kembali keranjang Anda");
+        }
+    }
+
+    /**
+     * Compares every cart line with the current item rows and returns one
+     * warning per problem line: unavailable, not enough stock, or a price
+     * that changed since the line was added.
+     *
+     * @param cart the cart to check
+     * @param currentItems current item rows keyed by ID; missing means deleted
+     */
+    public List<CartWarning> check(Cart cart, Map<String, ItemSummary> currentItems) {
+        List<CartWarning> warnings = new ArrayList<>();
+        for (CartItem line : cart.getItems()) {
+            CartWarning warning = checkLine(line, currentItems.get(line.getItemId()), cart.getHolderId());
+            if (warning != null) {
+                warnings.add(warning);
+            }
+        }
+        return warnings;
+    }
+
+    private Map<String, ItemSummary> loadCurrentItems(Cart cart) {
+        Objects.requireNonNull(cart, "Cart tidak boleh null");
+        return itemRepository.findSummariesByIds(cart.getItems().stream().map(CartItem::getItemId).toList());
+    }
+
+    private CartWarning checkLine(CartItem line, ItemSummary current, String holderId) {
+        if (current == null || !"ELIGIBLE".equalsIgnoreCase(current.getEligibilityStatus())
+                || !Boolean.TRUE.equals(current.getIsPublished())) {
+            return new CartWarning(line.getItemId(), CartWarning.Type.UNAVAILABLE,
+                    line.getItemName() + " tidak lagi tersedia untuk dijual");
+        }
+
+        int stock = StockReservations.available(line.getItemId(), current.getStock(), holderId);
+        if (stock < line.getQuantity()) {
+            return outOfStock(line, stock);
+        }
+
+        BigDecimal price = current.getPrice();
+        if (price != null && price.compareTo(line.getItemPrice()) != 0) {
+            DecimalFormat format = new DecimalFormat("#,###");
+            return new CartWarning(line.getItemId(), CartWarning.Type.PRICE_CHANGED,
+                    "Harga " + line.getItemName() + " berubah dari Rp " + format.format(line.getItemPrice())
+                            + " menjadi Rp " + format.format(price));
+        }
+        return null;
+    }
+
+    private CartWarning outOfStock(CartItem line, int available) {
+        return new CartWarning(line.getItemId(), CartWarning.Type.OUT_OF_STOCK, available == 0
+                ? line.getItemName() + " stoknya habis"
+                : line.getItemName() + " hanya tersisa " + available + " unit");
+    }
+}
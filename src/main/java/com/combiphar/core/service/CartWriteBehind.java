@@ -0,0 +1,225 @@
+package com.combiphar.core.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.combiphar.core.model.Cart;
+import com.combiphar.core.repository.CartRepository;
+
+/**
+ * Process-wide write-behind queue in front of {@link CartRepository}. Cart
+ * requests only enqueue the session cart; pending saves are coalesced per
+ * user, so five quantity bumps between flushes cost one transaction. A
+ * background thread flushes every {@link #FLUSH_INTERVAL_MS}; checkout,
+ * logout and order creation call {@link #flush(String)} to write a user's
+ * cart immediately.
+ *
+ * Writers and the flusher lock the {@link Cart} itself, so a save never
+ * sees a half-applied mutation. {@link #discard(String)} also cancels a save
+ * that was already taken off the queue and waits for one being written, so
+ * a cart emptied by an order is not written back afterwards.
+ */
+public final class CartWriteBehind {
+
+    /** Pause between background flushes. */
+    private static final long FLUSH_INTERVAL_MS = 2_000;
+    /** Per-user locks for moving saves between the queue and the writer. */
+    private static final int LOCK_STRIPES = 64;
+
+    private static final CartRepository cartRepository = new CartRepository();
+    private static final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private static final Map<String, Pending> writing = new ConcurrentHashMap<>();
+    private static final Object[] locks = new Object[LOCK_STRIPES];
+
+    static {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    private static final AtomicLong enqueued = new AtomicLong();
+    private static final AtomicLong coalesced = new AtomicLong();
+    private static final AtomicLong flushes = new AtomicLong();
+    private static final AtomicLong flushFailures = new AtomicLong();
+    private static final AtomicLong discarded = new AtomicLong();
+    private static final AtomicLong totalFlushMillis = new AtomicLong();
+    private static final AtomicLong lastFlushMillis = new AtomicLong();
+    private static final AtomicLong totalQueuedMillis = new AtomicLong();
+    private static final AtomicLong maxQueuedMillis = new AtomicLong();
+
+    private static ScheduledExecutorService scheduler;
+
+    private CartWriteBehind() {
+    }
+
+    /**
+     * Starts the background flusher and a shutdown hook that flushes what is
+     * left. Safe to call more than once.
+     */
+    public static synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cart-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(CartWriteBehind::flushAll,
+                FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(CartWriteBehind::flushAll, "cart-write-behind-shutdown"));
+    }
+
+    /**
+     * Queues a save of the user's cart, replacing any save still pending for
+     * that user.
+     */
+    public static void enqueue(String userId, Cart cart) {
+        if (userId == null || userId.isBlank() || cart == null) {
+            return;
+        }
+        enqueued.incrementAndGet();
+        pending.merge(userId, new Pending(cart, System.nanoTime()), (old, fresh) -> {
+            coalesced.incrementAndGet();
+            return new Pending(fresh.cart, old.queuedAt);
+        });
+    }
+
+    /**
+     * Writes the user's pending save now, on the calling thread.
+     *
+     * @return false if the save failed; it stays queued for the next flush
+     */
+    public static boolean flush(String userId) {
+        if (userId == null) {
+            return true;
+        }
+        Pending entry;
+        synchronized (lockFor(userId)) {
+            entry = pending.remove(userId);
+            if (entry == null) {
+                return true;
+            }
+            writing.put(userId, entry);
+        }
+        try {
+            return write(userId, entry);
+        } finally {
+            writing.remove(userId, entry);
+        }
+    }
+
+    /**
+     * Drops the user's pending save, for carts that were just emptied by an
+     * order and must not be written back. A save already taken off the queue
+     * is cancelled, or waited for if it is being written.
+     */
+    public static void discard(String userId) {
+        if (userId == null) {
+            return;
+        }
+        Pending inFlight;
+        synchronized (lockFor(userId)) {
+            pending.remove(userId);
+            inFlight = writing.get(userId);
+            if (inFlight != null) {
+                inFlight.discarded = true;
+            }
+        }
+        if (inFlight != null) {
+            // The writer holds the cart for the whole save; once we have it the save is over
+            synchronized (inFlight.cart) {
+                discarded.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Writes every pending save. Run by the background thread.
+     */
+    public static void flushAll() {
+        for (String userId : pending.keySet()) {
+            flush(userId);
+        }
+    }
+
+    private static boolean write(String userId, Pending entry) {
+        long start = System.nanoTime();
+        try {
+            synchronized (entry.cart) {
+                if (entry.discarded) {
+                    return true;
+                }
+                cartRepository.saveCartForUser(userId, entry.cart);
+            }
+        } catch (Exception e) {
+            flushFailures.incrementAndGet();
+            // Keep the dirty lines queued unless a newer save replaced them or the cart was discarded
+            synchronized (lockFor(userId)) {
+                if (!entry.discarded) {
+                    pending.putIfAbsent(userId, entry);
+                }
+            }
+            System.err.println("[CartWriteBehind] save failed for user " + userId + ", will retry: "
+                    + e.getMessage());
+            return false;
+        }
+
+        long now = System.nanoTime();
+        long elapsed = (now - start) / 1_000_000;
+        long queued = (now - entry.queuedAt) / 1_000_000;
+        flushes.incrementAndGet();
+        lastFlushMillis.set(elapsed);
+        totalFlushMillis.addAndGet(elapsed);
+        totalQueuedMillis.addAndGet(queued);
+        maxQueuedMillis.accumulateAndGet(queued, Math::max);
+        return true;
+    }
+
+    private static Object lockFor(String userId) {
+        return locks[Math.floorMod(userId.hashCode(), LOCK_STRIPES)];
+    }
+
+    /**
+     * Counters for the admin metrics endpoint.
+     */
+    public static Map<String, Object> getStats() {
+        long flushCount = flushes.get();
+        long now = System.nanoTime();
+        long oldest = pending.values().stream().mapToLong(p -> now - p.queuedAt).max().orElse(0);
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", pending.size());
+        stats.put("oldestPendingMs", oldest / 1_000_000);
+        stats.put("enqueued", enqueued.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("flushes", flushCount);
+        stats.put("flushFailures", flushFailures.get());
+        stats.put("discardedInFlight", discarded.get());
+        stats.put("lastFlushMs", lastFlushMillis.get());
+        stats.put("avgFlushMs", flushCount > 0 ? totalFlushMillis.get() / flushCount : 0);
+        stats.put("avgQueuedMs", flushCount > 0 ? totalQueuedMillis.get() / flushCount : 0);
+        stats.put("maxQueuedMs", maxQueuedMillis.get());
+        return stats;
+    }
+
+    /**
+     * A queued save: the session cart, when it was first queued, and whether
+     * it was discarded after leaving the queue.
+     */
+    private static final class Pending {
+        private final Cart cart;
+        private final long queuedAt;
+        private volatile boolean discarded;
+
+        private Pending(Cart cart, long queuedAt) {
+            this.cart = cart;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.combiphar.core.service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.combiphar.core.model.Category;
+import com.combiphar.core.model.Item;
+import com.combiphar.core.repository.CategoryRepository;
+import com.combiphar.core.repository.ItemRepository;
+import com.combiphar.core.repository.OrderItemRepository;
+
+/**
+ * Process-wide holder of the current {@link CatalogSnapshot}. Customer
+ * browsing reads the snapshot without touching the database; writes to
+ * items, QC status or categories call {@link #scheduleRebuild()}, and a
+ * background thread loads a fresh snapshot and swaps it in atomically. Writes
+ * arriving within {@link #REBUILD_DELAY_MS} of each other share one rebuild.
+ *
+ * Orders and stock adjustments only change stock and units sold, so they are
+ * applied to a copy of the current snapshot with {@link #recordSale(Map)} and
+ * {@link #adjustStock(String, int)} instead of reloading the catalog.
+ */
+public final class CatalogCache {
+
+    /** Minimum pause between rebuild attempts after a failure. */
+    private static final long RETRY_AFTER_FAILURE_MS = 30_000;
+    /** Quiet period after a write before the background rebuild runs. */
+    private static final long REBUILD_DELAY_MS = 200;
+
+    private static final ItemRepository itemRepository = new ItemRepository();
+    private static final CategoryRepository categoryRepository = new CategoryRepository();
+    private static final OrderItemRepository orderItemRepository = new OrderItemRepository();
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong rebuilds = new AtomicLong();
+    private static final AtomicLong rebuildFailures = new AtomicLong();
+    private static final AtomicLong totalRebuildMillis = new AtomicLong();
+    private static final AtomicLong lastRebuildMillis = new AtomicLong();
+    private static final AtomicLong stockUpdates = new AtomicLong();
+    private static final AtomicLong coalesced = new AtomicLong();
+
+    /** Changes waiting for the background thread, guarded by {@code pending}. */
+    private static final Object pending = new Object();
+    private static final Map<String, Integer> pendingStock = new HashMap<>();
+    private static final Map<String, Integer> pendingSold = new HashMap<>();
+    private static boolean rebuildPending;
+    private static boolean updatePending;
+
+    private static volatile CatalogSnapshot current;
+    private static long nextVersion = 1;
+    private static long lastFailureAt;
+    private static volatile ScheduledExecutorService scheduler;
+
+    private CatalogCache() {
+    }
+
+    /**
+     * Starts the background thread for scheduled rebuilds. Until it runs,
+     * scheduled rebuilds happen on the caller's thread. Safe to call more
+     * than once.
+     */
+    public static synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "catalog-cache");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the current snapshot. A cold cache counts as a miss and tries to
+     * load one; null means the database is unavailable and callers should fall
+     * back to querying it directly.
+     */
+    public static CatalogSnapshot get() {
+        CatalogSnapshot snapshot = current;
+        if (snapshot != null) {
+            hits.incrementAndGet();
+            return snapshot;
+        }
+
+        misses.incrementAndGet();
+        synchronized (CatalogCache.class) {
+            if (current == null && System.currentTimeMillis() - lastFailureAt >= RETRY_AFTER_FAILURE_MS) {
+                rebuild();
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Returns the current snapshot without counting a hit or miss or trying
+     * to load one; null while the cache is cold.
+     */
+    public static CatalogSnapshot peek() {
+        return current;
+    }
+
+    /**
+     * Rebuilds the snapshot on the background thread shortly after the call.
+     * Calls made while a rebuild is already waiting are folded into it.
+     */
+    public static void scheduleRebuild() {
+        ScheduledExecutorService executor = scheduler;
+        if (executor == null) {
+            rebuild();
+            return;
+        }
+        synchronized (pending) {
+            if (rebuildPending) {
+                coalesced.incrementAndGet();
+                return;
+            }
+            rebuildPending = true;
+        }
+        executor.schedule(CatalogCache::runPending, REBUILD_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Takes units sold by a committed order off the snapshot's stock and adds
+     * them to the popularity counts, without reloading the catalog.
+     *
+     * @param unitsByItem units sold per item ID
+     */
+    public static void recordSale(Map<String, Integer> unitsByItem) {
+        Map<String, Integer> stock = new HashMap<>();
+        unitsByItem.forEach((itemId, units) -> stock.put(itemId, -units));
+        enqueue(stock, unitsByItem);
+    }
+
+    /**
+     * Applies a committed stock change of one item to the snapshot without
+     * reloading the catalog.
+     *
+     * @param delta units added (positive) or removed (negative)
+     */
+    public static void adjustStock(String itemId, int delta) {
+        if (delta != 0) {
+            enqueue(Map.of(itemId, delta), Map.of());
+        }
+    }
+
+    private static void enqueue(Map<String, Integer> stockDelta, Map<String, Integer> soldDelta) {
+        ScheduledExecutorService executor = scheduler;
+        synchronized (pending) {
+            stockDelta.forEach((itemId, units) -> pendingStock.merge(itemId, units, Integer::sum));
+            soldDelta.forEach((itemId, units) -> pendingSold.merge(itemId, units, Integer::sum));
+            if (executor != null && (rebuildPending || updatePending)) {
+                coalesced.incrementAndGet();
+                return;
+            }
+            updatePending = true;
+        }
+        if (executor == null) {
+            runPending();
+        } else {
+            executor.schedule(CatalogCache::runPending, REBUILD_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Applies everything queued since the last run: a full rebuild if one was
+     * requested (the reload already sees committed stock changes), otherwise
+     * the stock and units-sold changes on a copy of the current snapshot.
+     */
+    private static void runPending() {
+        boolean full;
+        Map<String, Integer> stock;
+        Map<String, Integer> sold;
+        synchronized (pending) {
+            full = rebuildPending;
+            rebuildPending = false;
+            updatePending = false;
+            stock = new HashMap<>(pendingStock);
+            sold = new HashMap<>(pendingSold);
+            pendingStock.clear();
+            pendingSold.clear();
+        }
+        try {
+            if (full) {
+                rebuild();
+            } else if (!stock.isEmpty() || !sold.isEmpty()) {
+                applyStockChanges(stock, sold);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("[CatalogCache] scheduled update failed: " + e.getMessage());
+        }
+    }
+
+    private static synchronized void applyStockChanges(Map<String, Integer> stock, Map<String, Integer> sold) {
+        CatalogSnapshot snapshot = current;
+        if (snapshot == null) {
+            // Cold cache: the next read loads from the database anyway
+            return;
+        }
+        current = snapshot.withStockChanges(nextVersion++, stock, sold);
+        stockUpdates.incrementAndGet();
+    }
+
+    /**
+     * Loads items and categories and swaps in a new snapshot. Synchronized so
+     * concurrent writers cannot install an older view over a newer one. On
+     * failure the cache goes cold.
+     */
+    public static synchronized void rebuild() {
+        long start = System.nanoTime();
+        try {
+            List<Item> items = itemRepository.findPublished();
+            List<Category> categories = categoryRepository.findAll();
+            current = new CatalogSnapshot(nextVersion++, items, categories, loadUnitsSold());
+            lastFailureAt = 0;
+        } catch (RuntimeException e) {
+            current = null;
+            lastFailureAt = System.currentTimeMillis();
+            rebuildFailures.incrementAndGet();
+            RenderedPageCache.clear();
+            System.err.println("[CatalogCache] rebuild failed, falling back to database: " + e.getMessage());
+            return;
+        }
+
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        rebuilds.incrementAndGet();
+        lastRebuildMillis.set(elapsed);
+        totalRebuildMillis.addAndGet(elapsed);
+    }
+
+    /**
+     * Units sold per item for typeahead ranking. Ranking is optional, so a
+     * failure here degrades to unranked suggestions instead of failing the
+     * rebuild.
+     */
+    private static Map<String, Integer> loadUnitsSold() {
+        try {
+            return orderItemRepository.sumQuantityByItem();
+        } catch (RuntimeException e) {
+            System.err.println("[CatalogCache] could not load popularity, suggestions are unranked: "
+                    + e.getMessage());
+            return Map.of();
+        }
+    }
+
+    /**
+     * Counters for the admin metrics endpoint.
+     */
+    public static Map<String, Object> getStats() {
+        CatalogSnapshot snapshot = current;
+        long rebuildCount = rebuilds.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("version", snapshot != null ? snapshot.getVersion() : null);
+        stats.put("builtAt", snapshot != null ? snapshot.getBuiltAt().toString() : null);
+        stats.put("publishedItems", snapshot != null ? snapshot.getPublishedItems().size() : 0);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("rebuilds", rebuildCount);
+        stats.put("rebuildFailures", rebuildFailures.get());
+        stats.put("lastRebuildMs", lastRebuildMillis.get());
+        stats.put("avgRebuildMs", rebuildCount > 0 ? totalRebuildMillis.get() / rebuildCount : 0);
+        stats.put("stockUpdates", stockUpdates.get());
+        stats.put("coalesced", coalesced.get());
+        return stats;
+    }
+}
@@ -0,0 +1,459 @@
+package com.combiphar.core.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.combiphar.core.model.CatalogFacets;
+import com.combiphar.core.model.CatalogFilter;
+import com.combiphar.core.model.CatalogPage;
+import com.combiphar.core.model.Item;
+import com.combiphar.core.model.ItemSummary;
+import com.combiphar.core.model.PriceBucket;
+import com.combiphar.core.util.CatalogCursor;
+import com.combiphar.core.util.SearchTokenizer;
+
+/**
+ * Immutable in-memory inverted index over the published, eligible catalog.
+ * Documents are ordered newest first; only those in stock are searchable,
+ * tracked by one bitset so a stock change swaps that bitset and the changed
+ * documents without reindexing any text. Query tokens
+ * match terms exactly, as a prefix, or fuzzily through a trigram index over
+ * the term vocabulary, so misspellings like "kulkaz" still find "kulkas"
+ * without scanning documents. Every facet value (category, condition, price
+ * bucket) has a bitset over the documents, so filters and facet counts are
+ * bitset intersections. Descriptions are only read while indexing; documents
+ * are kept as {@link ItemSummary} listing rows. Owned by a
+ * {@link CatalogSnapshot}.
+ */
+public final class CatalogSearchIndex {
+
+    /** Term scores: exact term, prefix of a term, best possible fuzzy match. */
+    private static final int SCORE_EXACT = 1000;
+    private static final int SCORE_PREFIX = 900;
+    private static final int SCORE_FUZZY_MAX = 800;
+    /** Minimum trigram similarity (Jaccard) for a fuzzy term match. */
+    private static final double FUZZY_THRESHOLD = 0.4;
+    /** Terms found only in the description count this share of their score. */
+    private static final int DESCRIPTION_WEIGHT_PERCENT = 75;
+    /** Shorter tokens only match exactly or as a prefix. */
+    private static final int MIN_FUZZY_LENGTH = 3;
+    private static final int[] NO_TERMS = new int[0];
+
+    private static final Comparator<Item> NEWEST_FIRST = Comparator
+            .comparing(Item::getCreatedAt, Comparator.nullsLast(Comparator.<LocalDateTime>reverseOrder()))
+            .thenComparing(Item::getId, Comparator.reverseOrder());
+
+    private final ItemSummary[] documents;
+    private final Map<String, Integer> documentsById;
+    private final String[] terms;
+    private final int[][] postings;
+    private final String[][] nameTerms;
+    private final Map<String, int[]> trigramTerms;
+    private final int[] termTrigramCounts;
+    private final BitSet inStock;
+    private final Map<String, BitSet> byCategory;
+    private final Map<String, BitSet> byCondition;
+    private final Map<PriceBucket, BitSet> byPrice;
+
+    private CatalogSearchIndex(List<Item> items) {
+        Item[] indexed = items.stream()
+                .filter(CatalogSearchIndex::isListed)
+                .sorted(NEWEST_FIRST)
+                .toArray(Item[]::new);
+        this.documents = new ItemSummary[indexed.length];
+        this.documentsById = new HashMap<>();
+        this.inStock = new BitSet(documents.length);
+        this.trigramTerms = new HashMap<>();
+        this.byCategory = new HashMap<>();
+        this.byCondition = new HashMap<>();
+        this.byPrice = new EnumMap<>(PriceBucket.class);
+
+        this.nameTerms = new String[documents.length][];
+        TreeMap<String, List<Integer>> termDocs = new TreeMap<>();
+        for (int doc = 0; doc < documents.length; doc++) {
+            Item item = indexed[doc];
+            documents[doc] = new ItemSummary(item);
+            documentsById.put(item.getId(), doc);
+            if (isSearchable(item)) {
+                inStock.set(doc);
+            }
+            Set<String> seen = new HashSet<>(SearchTokenizer.tokenize(item.getName()));
+            nameTerms[doc] = seen.stream().sorted().toArray(String[]::new);
+            seen.addAll(SearchTokenizer.tokenize(item.getDescription()));
+            for (String term : seen) {
+                termDocs.computeIfAbsent(term, t -> new ArrayList<>()).add(doc);
+            }
+
+            if (item.getCategoryId() != null) {
+                byCategory.computeIfAbsent(item.getCategoryId(), c -> new BitSet(documents.length)).set(doc);
+            }
+            if (item.getCondition() != null) {
+                byCondition.computeIfAbsent(item.getCondition(), c -> new BitSet(documents.length)).set(doc);
+            }
+            PriceBucket bucket = PriceBucket.of(item.getPrice());
+            if (bucket != null) {
+                byPrice.computeIfAbsent(bucket, b -> new BitSet(documents.length)).set(doc);
+            }
+        }
+
+        this.terms = new String[termDocs.size()];
+        this.postings = new int[termDocs.size()][];
+        int i = 0;
+        for (Map.Entry<String, List<Integer>> entry : termDocs.entrySet()) {
+            terms[i] = entry.getKey();
+            postings[i] = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+            i++;
+        }
+
+        this.termTrigramCounts = new int[terms.length];
+        Map<String, List<Integer>> gramTerms = new HashMap<>();
+        for (int t = 0; t < terms.length; t++) {
+            Set<String> grams = trigrams(terms[t]);
+            termTrigramCounts[t] = grams.size();
+            for (String gram : grams) {
+                gramTerms.computeIfAbsent(gram, g -> new ArrayList<>()).add(t);
+            }
+        }
+        gramTerms.forEach((gram, ids) -> trigramTerms.put(gram,
+                ids.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    /**
+     * Copy of an index with other documents and stock bitset; everything
+     * else is shared.
+     */
+    private CatalogSearchIndex(CatalogSearchIndex base, ItemSummary[] documents, BitSet inStock) {
+        this.documents = documents;
+        this.documentsById = base.documentsById;
+        this.terms = base.terms;
+        this.postings = base.postings;
+        this.nameTerms = base.nameTerms;
+        this.trigramTerms = base.trigramTerms;
+        this.termTrigramCounts = base.termTrigramCounts;
+        this.inStock = inStock;
+        this.byCategory = base.byCategory;
+        this.byCondition = base.byCondition;
+        this.byPrice = base.byPrice;
+    }
+
+    /**
+     * Builds an index from the given items; unpublished and ineligible items
+     * are skipped.
+     */
+    public static CatalogSearchIndex build(List<Item> items) {
+        return new CatalogSearchIndex(items);
+    }
+
+    /**
+     * An index with the stock of some items changed. Text and facet indexes
+     * are shared with this one; only the changed documents and the in-stock
+     * bitset are replaced.
+     *
+     * @param changed items whose stock changed, keyed by ID; items this index
+     *        does not list are ignored
+     */
+    CatalogSearchIndex withStock(Map<String, Item> changed) {
+        ItemSummary[] docs = documents.clone();
+        BitSet stocked = (BitSet) inStock.clone();
+        for (Item item : changed.values()) {
+            Integer doc = documentsById.get(item.getId());
+            if (doc != null) {
+                docs[doc] = new ItemSummary(item);
+                stocked.set(doc, isSearchable(item));
+            }
+        }
+        return new CatalogSearchIndex(this, docs, stocked);
+    }
+
+    /**
+     * One keyset page of documents matching every query token and every facet
+     * filter. Text queries are ranked by relevance (ties newest first); an
+     * empty query lists newest first.
+     *
+     * @param filter text and facet filters
+     * @param after  cursor of the previous page's last row (null for the first
+     *               page)
+     * @param limit  page size
+     */
+    public CatalogPage page(CatalogFilter filter, CatalogCursor after, int limit) {
+        TextMatch text = matchText(filter.getSearchQuery());
+        BitSet matches = text.docs;
+        matches.and(facetMask(filter, null));
+
+        if (text.scores == null) {
+            List<ItemSummary> items = new ArrayList<>(limit);
+            int doc = matches.nextSetBit(after != null ? firstAfter(after) : 0);
+            while (doc >= 0 && items.size() < limit) {
+                items.add(documents[doc]);
+                doc = matches.nextSetBit(doc + 1);
+            }
+            return CatalogPage.of(items, doc >= 0, matches.cardinality());
+        }
+        return rankedPage(matches, text.scores, after, limit);
+    }
+
+    /**
+     * Page of matches ordered by score, then newest first. Each entry packs
+     * the inverted score and document number into a long so one primitive
+     * sort yields that order.
+     */
+    private CatalogPage rankedPage(BitSet matches, int[] scores, CatalogCursor after, int limit) {
+        long[] ranked = new long[matches.cardinality()];
+        int n = 0;
+        for (int doc = matches.nextSetBit(0); doc >= 0; doc = matches.nextSetBit(doc + 1)) {
+            ranked[n++] = ((long) (SCORE_EXACT - scores[doc]) << 32) | doc;
+        }
+        Arrays.sort(ranked);
+
+        int from = 0;
+        if (after != null && after.getScore() != null) {
+            int lo = 0;
+            int hi = ranked.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (rankedAfter(ranked[mid], after)) {
+                    hi = mid;
+                } else {
+                    lo = mid + 1;
+                }
+            }
+            from = lo;
+        }
+
+        int to = Math.min(from + limit, ranked.length);
+        List<ItemSummary> items = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            items.add(documents[(int) ranked[i]]);
+        }
+
+        CatalogCursor next = null;
+        if (to < ranked.length && to > from) {
+            ItemSummary last = documents[(int) ranked[to - 1]];
+            int lastScore = SCORE_EXACT - (int) (ranked[to - 1] >>> 32);
+            next = new CatalogCursor(last.getCreatedAt(), last.getId(), lastScore);
+        }
+        return new CatalogPage(items, next, ranked.length);
+    }
+
+    private boolean rankedAfter(long entry, CatalogCursor after) {
+        int score = SCORE_EXACT - (int) (entry >>> 32);
+        ItemSummary item = documents[(int) entry];
+        return score < after.getScore()
+                || (score == after.getScore() && after.isBefore(item.getCreatedAt(), item.getId()));
+    }
+
+    /**
+     * Counts per facet value under the current filter. Each facet ignores its
+     * own selection so the other values keep meaningful counts.
+     */
+    public CatalogFacets facets(CatalogFilter filter) {
+        BitSet text = matchText(filter.getSearchQuery()).docs;
+
+        BitSet categoryBase = facetMask(filter, "category");
+        categoryBase.and(text);
+        BitSet conditionBase = facetMask(filter, "condition");
+        conditionBase.and(text);
+        BitSet priceBase = facetMask(filter, "price");
+        priceBase.and(text);
+
+        Map<String, Integer> categories = new LinkedHashMap<>();
+        byCategory.forEach((id, bits) -> putCount(categories, id, categoryBase, bits));
+        Map<String, Integer> conditions = new LinkedHashMap<>();
+        byCondition.forEach((condition, bits) -> putCount(conditions, condition, conditionBase, bits));
+        Map<PriceBucket, Integer> prices = new EnumMap<>(PriceBucket.class);
+        byPrice.forEach((bucket, bits) -> putCount(prices, bucket, priceBase, bits));
+
+        return new CatalogFacets(categories, conditions, prices);
+    }
+
+    /**
+     * Number of searchable (in stock) documents.
+     */
+    public int size() {
+        return inStock.cardinality();
+    }
+
+    /**
+     * Documents matching every query token with their relevance (the mean of
+     * each token's best term score, discounted when the term is only in the
+     * description). An empty query matches all documents and has no scores.
+     */
+    private TextMatch matchText(String searchQuery) {
+        List<String> tokens = SearchTokenizer.tokenize(searchQuery);
+        if (tokens.isEmpty()) {
+            return new TextMatch((BitSet) inStock.clone(), null);
+        }
+
+        int[] totals = new int[documents.length];
+        BitSet matched = null;
+        for (String token : tokens) {
+            int[] best = new int[documents.length];
+            BitSet tokenDocs = new BitSet(documents.length);
+            for (Map.Entry<Integer, Integer> term : matchTerms(token).entrySet()) {
+                String text = terms[term.getKey()];
+                int score = term.getValue();
+                for (int doc : postings[term.getKey()]) {
+                    int weighted = Arrays.binarySearch(nameTerms[doc], text) >= 0
+                            ? score
+                            : score * DESCRIPTION_WEIGHT_PERCENT / 100;
+                    best[doc] = Math.max(best[doc], weighted);
+                    tokenDocs.set(doc);
+                }
+            }
+
+            if (matched == null) {
+                matched = tokenDocs;
+            } else {
+                matched.and(tokenDocs);
+            }
+            if (matched.isEmpty()) {
+                break;
+            }
+            for (int doc = tokenDocs.nextSetBit(0); doc >= 0; doc = tokenDocs.nextSetBit(doc + 1)) {
+                totals[doc] += best[doc];
+            }
+        }
+
+        for (int doc = matched.nextSetBit(0); doc >= 0; doc = matched.nextSetBit(doc + 1)) {
+            totals[doc] /= tokens.size();
+        }
+        return new TextMatch(matched, totals);
+    }
+
+    /**
+     * Terms matching one token, with their score: the term itself, every
+     * term it prefixes, and terms sharing enough trigrams with it. Fuzzy
+     * candidates come from the trigram postings, never from a vocabulary
+     * scan.
+     */
+    private Map<Integer, Integer> matchTerms(String token) {
+        Map<Integer, Integer> matches = new HashMap<>();
+        for (int t = lowerBound(token); t < terms.length && terms[t].startsWith(token); t++) {
+            matches.put(t, terms[t].equals(token) ? SCORE_EXACT : SCORE_PREFIX);
+        }
+
+        if (token.length() < MIN_FUZZY_LENGTH) {
+            return matches;
+        }
+
+        Set<String> grams = trigrams(token);
+        Map<Integer, Integer> shared = new HashMap<>();
+        for (String gram : grams) {
+            for (int t : trigramTerms.getOrDefault(gram, NO_TERMS)) {
+                shared.merge(t, 1, Integer::sum);
+            }
+        }
+        for (Map.Entry<Integer, Integer> candidate : shared.entrySet()) {
+            int common = candidate.getValue();
+            double similarity = (double) common
+                    / (grams.size() + termTrigramCounts[candidate.getKey()] - common);
+            if (similarity >= FUZZY_THRESHOLD) {
+                int score = (int) Math.round(similarity * SCORE_FUZZY_MAX);
+                matches.merge(candidate.getKey(), score, Math::max);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Trigrams of a term padded with two leading spaces and one trailing
+     * space, so word starts weigh more than word ends.
+     */
+    private static Set<String> trigrams(String term) {
+        String padded = "  " + term + " ";
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    /**
+     * Intersection of the selected facet values, skipping one facet by name
+     * ("category", "condition" or "price"; null skips none).
+     */
+    private BitSet facetMask(CatalogFilter filter, String skip) {
+        BitSet mask = (BitSet) inStock.clone();
+        if (filter.getCategoryId() != null && !"category".equals(skip)) {
+            mask.and(byCategory.getOrDefault(filter.getCategoryId(), new BitSet()));
+        }
+        if (filter.getCondition() != null && !"condition".equals(skip)) {
+            mask.and(byCondition.getOrDefault(filter.getCondition(), new BitSet()));
+        }
+        if (filter.getPriceBucket() != null && !"price".equals(skip)) {
+            mask.and(byPrice.getOrDefault(filter.getPriceBucket(), new BitSet()));
+        }
+        return mask;
+    }
+
+    private static <K> void putCount(Map<K, Integer> counts, K key, BitSet base, BitSet bits) {
+        BitSet both = (BitSet) base.clone();
+        both.and(bits);
+        int count = both.cardinality();
+        if (count > 0) {
+            counts.put(key, count);
+        }
+    }
+
+    /**
+     * Binary search for the first document positioned after the cursor;
+     * documents are in newest-first order so the predicate is monotonic.
+     */
+    private int firstAfter(CatalogCursor after) {
+        int lo = 0;
+        int hi = documents.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            ItemSummary item = documents[mid];
+            if (after.isBefore(item.getCreatedAt(), item.getId())) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    private int lowerBound(String key) {
+        int idx = Arrays.binarySearch(terms, key);
+        return idx >= 0 ? idx : -idx - 1;
+    }
+
+    /**
+     * Matched documents and their scores (null when there was no query).
+     */
+    private static final class TextMatch {
+        private final BitSet docs;
+        private final int[] scores;
+
+        private TextMatch(BitSet docs, int[] scores) {
+            this.docs = docs;
+            this.scores = scores;
+        }
+    }
+
+    /**
+     * Published, eligible and in stock.
+     */
+    static boolean isSearchable(Item item) {
+        return isListed(item) && item.getStock() != null && item.getStock() > 0;
+    }
+
+    /**
+     * Published and eligible, whatever the stock.
+     */
+    private static boolean isListed(Item item) {
+        return Boolean.TRUE.equals(item.getIsPublished()) && "ELIGIBLE".equals(item.getEligibilityStatus());
+    }
+}
@@ -0,0 +1,227 @@
+package com.combiphar.core.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+import com.combiphar.core.model.Category;
+import com.combiphar.core.model.Item;
+import com.combiphar.core.model.ItemSummary;
+
+/**
+ * Immutable, versioned view of the published catalog: listing summaries and
+ * full rows (for product pages) of the published items, the category name map
+ * and the search and typeahead indexes built over them. A
+ * new snapshot is built for every catalog change and swapped in whole by
+ * {@link CatalogCache}; stock-only changes derive one from the previous
+ * snapshot with {@link #withStockChanges(long, Map, Map)}, which keeps the
+ * text index and builds the typeahead index only when it is first used.
+ */
+public final class CatalogSnapshot {
+
+    /**
+     * Identifies this process in validators: versions restart at 1 on every
+     * boot and are counted separately on every node.
+     */
+    private static final String INSTANCE = Long.toString(System.currentTimeMillis(), 36)
+            + Integer.toString(ThreadLocalRandom.current().nextInt(36 * 36 * 36), 36);
+
+    private final long version;
+    private final LocalDateTime builtAt;
+    private final List<Item> sourceItems;
+    private final List<Category> categories;
+    private final Map<String, Integer> unitsSold;
+    private final List<ItemSummary> publishedItems;
+    private final Map<String, Item> itemsById;
+    private final List<Category> activeCategories;
+    private final Map<String, String> categoryNames;
+    private final CatalogSearchIndex searchIndex;
+    private volatile CatalogSuggester suggester;
+
+    CatalogSnapshot(long version, List<Item> publishedItems, List<Category> categories,
+            Map<String, Integer> unitsSold) {
+        this.version = version;
+        this.builtAt = LocalDateTime.now();
+        this.sourceItems = List.copyOf(publishedItems);
+        this.categories = List.copyOf(categories);
+        this.unitsSold = Map.copyOf(unitsSold);
+        this.publishedItems = publishedItems.stream()
+                .map(ItemSummary::new)
+                .collect(Collectors.toUnmodifiableList());
+
+        Map<String, Item> byId = new LinkedHashMap<>();
+        for (Item item : publishedItems) {
+            byId.put(item.getId(), item);
+        }
+        this.itemsById = Map.copyOf(byId);
+
+        this.activeCategories = categories.stream()
+                .filter(c -> "AKTIF".equals(c.getStatus()))
+                .collect(Collectors.toUnmodifiableList());
+
+        Map<String, String> names = new HashMap<>();
+        for (Category category : categories) {
+            names.put(category.getId(), category.getName());
+        }
+        this.categoryNames = Map.copyOf(names);
+
+        this.searchIndex = CatalogSearchIndex.build(publishedItems);
+        this.suggester = buildSuggester();
+    }
+
+    /**
+     * Snapshot derived from another one by a stock change; the suggester is
+     * left to {@link #getSuggester()}.
+     */
+    private CatalogSnapshot(long version, CatalogSnapshot base, List<Item> sourceItems,
+            List<ItemSummary> publishedItems, Map<String, Item> itemsById, Map<String, Integer> unitsSold,
+            CatalogSearchIndex searchIndex) {
+        this.version = version;
+        this.builtAt = LocalDateTime.now();
+        this.sourceItems = sourceItems;
+        this.categories = base.categories;
+        this.unitsSold = unitsSold;
+        this.publishedItems = publishedItems;
+        this.itemsById = itemsById;
+        this.activeCategories = base.activeCategories;
+        this.categoryNames = base.categoryNames;
+        this.searchIndex = searchIndex;
+    }
+
+    /**
+     * A snapshot of the same items and categories with stock and units sold
+     * changed, built without touching the database.
+     *
+     * @param stockDelta units added to (or, if negative, taken off) each item's stock
+     * @param soldDelta units sold per item since this snapshot
+     */
+    CatalogSnapshot withStockChanges(long newVersion, Map<String, Integer> stockDelta,
+            Map<String, Integer> soldDelta) {
+        Map<String, Item> changed = new HashMap<>();
+        stockDelta.forEach((itemId, delta) -> {
+            Item item = itemsById.get(itemId);
+            if (item != null && delta != 0) {
+                changed.put(itemId, withStock(item, delta));
+            }
+        });
+
+        List<Item> items = sourceItems;
+        List<ItemSummary> summaries = publishedItems;
+        Map<String, Item> byId = itemsById;
+        CatalogSearchIndex index = searchIndex;
+        if (!changed.isEmpty()) {
+            List<Item> changedItems = new ArrayList<>(sourceItems.size());
+            List<ItemSummary> changedSummaries = new ArrayList<>(publishedItems.size());
+            for (int i = 0; i < sourceItems.size(); i++) {
+                Item item = changed.get(sourceItems.get(i).getId());
+                changedItems.add(item != null ? item : sourceItems.get(i));
+                changedSummaries.add(item != null ? new ItemSummary(item) : publishedItems.get(i));
+            }
+            Map<String, Item> changedById = new HashMap<>(itemsById);
+            changedById.putAll(changed);
+            items = Collections.unmodifiableList(changedItems);
+            summaries = Collections.unmodifiableList(changedSummaries);
+            byId = Collections.unmodifiableMap(changedById);
+            index = searchIndex.withStock(changed);
+        }
+
+        Map<String, Integer> sold = unitsSold;
+        if (!soldDelta.isEmpty()) {
+            Map<String, Integer> merged = new HashMap<>(unitsSold);
+            soldDelta.forEach((itemId, units) -> merged.merge(itemId, units, Integer::sum));
+            sold = Collections.unmodifiableMap(merged);
+        }
+        return new CatalogSnapshot(newVersion, this, items, summaries, byId, sold, index);
+    }
+
+    private CatalogSuggester buildSuggester() {
+        return CatalogSuggester.build(
+                sourceItems.stream().filter(CatalogSearchIndex::isSearchable).collect(Collectors.toList()),
+                activeCategories, unitsSold);
+    }
+
+    /**
+     * Copy of the item with its stock moved by delta; snapshot items are
+     * shared and never modified.
+     */
+    private static Item withStock(Item item, int delta) {
+        Item copy = new Item(item.getId(), item.getCategoryId(), item.getName(), item.getCondition(),
+                item.getPrice(), Math.max(0, (item.getStock() != null ? item.getStock() : 0) + delta));
+        copy.setDescription(item.getDescription());
+        copy.setImageUrl(item.getImageUrl());
+        copy.setEligibilityStatus(item.getEligibilityStatus());
+        copy.setIsPublished(item.getIsPublished());
+        copy.setCreatedAt(item.getCreatedAt());
+        copy.setUpdatedAt(item.getUpdatedAt());
+        return copy;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * The version qualified by the process that built it, for ETags that
+     * clients may present to another node or after a restart.
+     */
+    public String getTag() {
+        return INSTANCE + "." + version;
+    }
+
+    public LocalDateTime getBuiltAt() {
+        return builtAt;
+    }
+
+    /**
+     * Published, eligible items as listing summaries, newest first.
+     */
+    public List<ItemSummary> getPublishedItems() {
+        return publishedItems;
+    }
+
+    /**
+     * Returns a published, eligible item, or null if it is not in the catalog.
+     */
+    public Item getPublishedItem(String id) {
+        return id != null ? itemsById.get(id) : null;
+    }
+
+    public List<Category> getActiveCategories() {
+        return activeCategories;
+    }
+
+    /**
+     * Category id to name, for every category including inactive ones.
+     */
+    public Map<String, String> getCategoryNames() {
+        return categoryNames;
+    }
+
+    public CatalogSearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    /**
+     * Typeahead index. Snapshots derived by a stock change build it on first
+     * use, so a burst of sales does not rebuild it for every order.
+     */
+    public CatalogSuggester getSuggester() {
+        CatalogSuggester built = suggester;
+        if (built == null) {
+            synchronized (this) {
+                built = suggester;
+                if (built == null) {
+                    built = buildSuggester();
+                    suggester = built;
+                }
+            }
+        }
+        return built;
+    }
+}
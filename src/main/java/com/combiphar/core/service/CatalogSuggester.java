@@ -0,0 +1,149 @@
+package com.combiphar.core.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.combiphar.core.model.CatalogSuggestion;
+import com.combiphar.core.model.Category;
+import com.combiphar.core.model.Item;
+import com.combiphar.core.util.SearchTokenizer;
+
+/**
+ * Immutable prefix index for search-box typeahead over product and category
+ * names. Suggestions are stored in rank order (most popular first) and every
+ * word start of a name is a key in one sorted array, so a lookup is a binary
+ * search plus a scan of the matching key range. Owned by a
+ * {@link CatalogSnapshot}.
+ */
+public final class CatalogSuggester {
+
+    private static final Comparator<CatalogSuggestion> BY_RANK = Comparator
+            .comparingInt(CatalogSuggestion::getPopularity).reversed()
+            .thenComparing(s -> s.getText().length())
+            .thenComparing(CatalogSuggestion::getText);
+
+    private final CatalogSuggestion[] suggestions;
+    private final String[] keys;
+    private final int[] targets;
+
+    private CatalogSuggester(List<CatalogSuggestion> candidates) {
+        // One suggestion per distinct (type, name), keeping the most popular
+        Map<String, CatalogSuggestion> distinct = new LinkedHashMap<>();
+        for (CatalogSuggestion candidate : candidates) {
+            String key = candidate.getType() + ":" + SearchTokenizer.normalize(candidate.getText());
+            CatalogSuggestion existing = distinct.get(key);
+            if (existing == null || candidate.getPopularity() > existing.getPopularity()) {
+                distinct.put(key, candidate);
+            }
+        }
+        this.suggestions = distinct.values().stream().sorted(BY_RANK).toArray(CatalogSuggestion[]::new);
+
+        List<String> keyList = new ArrayList<>();
+        List<Integer> targetList = new ArrayList<>();
+        for (int rank = 0; rank < suggestions.length; rank++) {
+            String normalized = SearchTokenizer.normalize(suggestions[rank].getText());
+            for (int start = 0; start < normalized.length(); start++) {
+                if (start == 0 || normalized.charAt(start - 1) == ' ') {
+                    keyList.add(normalized.substring(start));
+                    targetList.add(rank);
+                }
+            }
+        }
+
+        Integer[] order = new Integer[keyList.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(keyList::get));
+
+        this.keys = new String[order.length];
+        this.targets = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            keys[i] = keyList.get(order[i]);
+            targets[i] = targetList.get(order[i]);
+        }
+    }
+
+    /**
+     * Builds suggestions from searchable items and active categories.
+     *
+     * @param items      searchable items
+     * @param categories active categories
+     * @param unitsSold  units sold per item id (missing means none)
+     */
+    public static CatalogSuggester build(List<Item> items, List<Category> categories, Map<String, Integer> unitsSold) {
+        List<CatalogSuggestion> candidates = new ArrayList<>();
+        Map<String, Integer> categoryPopularity = new HashMap<>();
+        Set<String> categoriesWithItems = new HashSet<>();
+
+        for (Item item : items) {
+            int sold = unitsSold.getOrDefault(item.getId(), 0);
+            if (item.getName() != null && !item.getName().isBlank()) {
+                candidates.add(new CatalogSuggestion(item.getName().trim(), CatalogSuggestion.TYPE_PRODUCT,
+                        item.getId(), sold));
+            }
+            if (item.getCategoryId() != null) {
+                categoryPopularity.merge(item.getCategoryId(), sold, Integer::sum);
+                categoriesWithItems.add(item.getCategoryId());
+            }
+        }
+        for (Category category : categories) {
+            if (categoriesWithItems.contains(category.getId())) {
+                candidates.add(new CatalogSuggestion(category.getName(), CatalogSuggestion.TYPE_CATEGORY,
+                        category.getId(), categoryPopularity.getOrDefault(category.getId(), 0)));
+            }
+        }
+        return new CatalogSuggester(candidates);
+    }
+
+    /**
+     * Top completions whose name has a word starting with the prefix, most
+     * popular first.
+     *
+     * @param prefix text typed so far (can be null)
+     * @param limit  maximum number of suggestions
+     */
+    public List<CatalogSuggestion> suggest(String prefix, int limit) {
+        String normalized = SearchTokenizer.normalize(prefix);
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        BitSet ranks = new BitSet(suggestions.length);
+        for (int i = lowerBound(normalized); i < keys.length && keys[i].startsWith(normalized); i++) {
+            ranks.set(targets[i]);
+        }
+
+        List<CatalogSuggestion> result = new ArrayList<>(limit);
+        for (int rank = ranks.nextSetBit(0); rank >= 0 && result.size() < limit; rank = ranks.nextSetBit(rank + 1)) {
+            result.add(suggestions[rank]);
+        }
+        return result;
+    }
+
+    /**
+     * First index whose key is not less than the given key; keys may repeat,
+     * so this cannot use Arrays.binarySearch.
+     */
+    private int lowerBound(String key) {
+        int lo = 0;
+        int hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
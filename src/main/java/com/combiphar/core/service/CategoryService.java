@@ -1,9 +1,13 @@
 package com.combiphar.core.service;
 
+import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.combiphar.core.model.Category;
 import com.combiphar.core.repository.CategoryRepository;
+import com.combiphar.core.repository.RowCallback;
 
 /**
  * Service for managing categories.
@@ -23,6 +27,13 @@ public class CategoryService {
         return categoryRepository.findAll();
     }
 
+    /**
+     * Stream all categories, for large JSON responses
+     */
+    public void forEachCategory(RowCallback<Category> callback) throws IOException {
+        categoryRepository.forEach(callback);
+    }
+
     /**
      * Get categories by status
      */
@@ -30,6 +41,33 @@ public class CategoryService {
         return categoryRepository.findByStatus(status);
     }
 
+    /**
+     * Get active categories for the customer catalog
+     */
+    public List<Category> getActiveCategories() {
+        CatalogSnapshot snapshot = CatalogCache.get();
+        if (snapshot != null) {
+            return snapshot.getActiveCategories();
+        }
+        return categoryRepository.findByStatus("AKTIF");
+    }
+
+    /**
+     * Get category id to name map for the customer catalog
+     */
+    public Map<String, String> getCategoryNameMap() {
+        CatalogSnapshot snapshot = CatalogCache.get();
+        if (snapshot != null) {
+            return snapshot.getCategoryNames();
+        }
+
+        Map<String, String> names = new HashMap<>();
+        for (Category category : categoryRepository.findAll()) {
+            names.put(category.getId(), category.getName());
+        }
+        return names;
+    }
+
     /**
      * Get category by ID
      */
@@ -52,7 +90,9 @@ public class CategoryService {
         category.setDescription(description);
         category.setStatus(status != null ? status : "AKTIF");
 
-        return categoryRepository.save(category);
+        Category saved = categoryRepository.save(category);
+        CatalogCache.scheduleRebuild();
+        return saved;
     }
 
     /**
@@ -73,7 +113,9 @@ public class CategoryService {
         existingCategory.setDescription(description);
         existingCategory.setStatus(status != null ? status : "AKTIF");
 
-        return categoryRepository.update(id, existingCategory);
+        Category updated = categoryRepository.update(id, existingCategory);
+        CatalogCache.scheduleRebuild();
+        return updated;
     }
 
     /**
@@ -108,5 +150,6 @@ public class CategoryService {
         if (!deleted) {
             throw new RuntimeException("Gagal menghapus kategori");
         }
+        CatalogCache.scheduleRebuild();
     }
 }
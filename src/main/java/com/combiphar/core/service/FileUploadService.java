@@ -55,6 +55,24 @@ public class FileUploadService {
         return new PaymentProof(originalFileName, urlPath, contentType, fileSize);
     }
 
+    /**
+     * Menghapus file bukti yang sudah disimpan, misalnya jika pesanan gagal
+     * dibuat setelah upload. Kegagalan hanya dicatat.
+     *
+     * @param proof bukti yang dikembalikan oleh {@link #saveFile}
+     */
+    public void deleteFile(PaymentProof proof) {
+        if (proof == null || proof.getFilePath() == null) {
+            return;
+        }
+        Path filePath = Paths.get(UPLOAD_DIR).resolve(Paths.get(proof.getFilePath()).getFileName());
+        try {
+            Files.deleteIfExists(filePath);
+        } catch (IOException e) {
+            System.err.println("[FileUploadService] gagal menghapus " + filePath + ": " + e.getMessage());
+        }
+    }
+
     private void validateFile(String fileName, String contentType, long fileSize) {
         if (fileName == null || fileName.isBlank()) {
             throw new IllegalArgumentException("Nama file tidak boleh kosong");
@@ -0,0 +1,298 @@
+package com.combiphar.core.service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import com.combiphar.core.model.IdempotencyKey;
+import com.combiphar.core.repository.IdempotencyKeyRepository;
+import com.combiphar.core.util.EnvConfig;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Process-wide guard that lets each checkout place at most one order. The
+ * checkout page hands the browser a key; the payment upload claims it
+ * before doing anything and stores its response under it in the same
+ * transaction that places the order, so a double-click or a retried upload
+ * gets the first response back instead of a second order, file and payment.
+ *
+ * Finished keys are answered from a bounded in-memory cache. Everything
+ * else goes through idempotency_keys, whose primary key decides which of
+ * two concurrent requests owns a key. A key left pending by a request that
+ * died is taken over after {@link #PENDING_TIMEOUT}; keys are dropped after
+ * {@link #KEY_TTL}.
+ */
+public final class IdempotencyKeys {
+
+    /** How long keys are remembered, overridable with IDEMPOTENCY_KEY_HOURS. */
+    private static final Duration KEY_TTL =
+            Duration.ofHours(Math.max(1, EnvConfig.getLong("IDEMPOTENCY_KEY_HOURS", 24)));
+    /** Age after which a pending key is treated as abandoned. */
+    private static final Duration PENDING_TIMEOUT = Duration.ofMinutes(5);
+    /** Finished keys kept in memory. */
+    private static final int CACHE_SIZE = 10_000;
+    /** Pause between purges of expired keys. */
+    private static final long PURGE_INTERVAL_MS = 3_600_000;
+    private static final Pattern KEY_FORMAT = Pattern.compile("[A-Za-z0-9-]{16,64}");
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final IdempotencyKeyRepository repository = new IdempotencyKeyRepository();
+
+    private static final Map<String, Completed> recent = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Completed> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private static final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private static final AtomicLong claimed = new AtomicLong();
+    private static final AtomicLong replayed = new AtomicLong();
+    private static final AtomicLong conflicts = new AtomicLong();
+    private static final AtomicLong reclaimed = new AtomicLong();
+    private static final AtomicLong persistFailures = new AtomicLong();
+
+    private static ScheduledExecutorService scheduler;
+
+    private IdempotencyKeys() {
+    }
+
+    /**
+     * Starts the purge of expired keys. Safe to call more than once.
+     */
+    public static synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "idempotency-keys");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(IdempotencyKeys::purgeExpired,
+                PURGE_INTERVAL_MS, PURGE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * A fresh key for a new checkout.
+     */
+    public static String newKey() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * Whether the value looks like a key handed out by {@link #newKey()}.
+     */
+    public static boolean isValidKey(String key) {
+        return key != null && KEY_FORMAT.matcher(key).matches();
+    }
+
+    /**
+     * Claims the key for the user's request.
+     *
+     * @return the stored response if the key already finished, or empty if
+     *         the caller now owns the key and must end with
+     *         {@link #complete(Connection, String, Map)} and
+     *         {@link #completed(String, String, Map)}, or with
+     *         {@link #abandon(String)}
+     * @throws IllegalStateException if another request holds the key
+     * @throws IllegalArgumentException if the key belongs to another user
+     */
+    public static Optional<Map<String, Object>> claim(String key, String userId) {
+        Optional<Map<String, Object>> cached = cachedResponse(key, userId);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        if (!inFlight.add(key)) {
+            cached = cachedResponse(key, userId);
+            if (cached.isPresent()) {
+                return cached;
+            }
+            throw inProgress();
+        }
+
+        boolean owned = false;
+        try {
+            Instant now = Instant.now();
+            if (repository.insertPending(key, userId, now)) {
+                owned = true;
+            } else {
+                IdempotencyKey existing = repository.findByKey(key).orElse(null);
+                if (existing == null) {
+                    // Deleted between the insert and the read; the client may retry
+                    throw inProgress();
+                }
+                if (!existing.getUserId().equals(userId)) {
+                    throw new IllegalArgumentException("Kunci checkout tidak valid, silakan mulai dari checkout");
+                }
+                if (existing.getStatus() == IdempotencyKey.Status.COMPLETED) {
+                    Map<String, Object> response = readResponse(existing.getResponse());
+                    remember(key, userId, response);
+                    replayed.incrementAndGet();
+                    return Optional.of(response);
+                }
+                if (!repository.reclaimStale(key, userId, now.minus(PENDING_TIMEOUT), now)) {
+                    throw inProgress();
+                }
+                reclaimed.incrementAndGet();
+                owned = true;
+            }
+            claimed.incrementAndGet();
+            return Optional.empty();
+        } catch (SQLException e) {
+            throw new RuntimeException("Gagal memeriksa kunci checkout: " + e.getMessage(), e);
+        } finally {
+            if (!owned) {
+                inFlight.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Marks the key completed with its response inside the transaction that
+     * does the guarded work, such as placing the order. The key is finished
+     * exactly when that work commits, so it can never be taken over once the
+     * order exists.
+     *
+     * @throws IllegalStateException if the key is no longer pending; the
+     *         transaction must then be rolled back
+     */
+    public static void complete(Connection conn, String key, Map<String, Object> response) throws SQLException {
+        String json;
+        try {
+            json = MAPPER.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Respons tidak dapat disimpan: " + e.getMessage(), e);
+        }
+        if (!repository.complete(conn, key, json)) {
+            throw inProgress();
+        }
+    }
+
+    /**
+     * Remembers the response of a key whose transaction committed. Later
+     * claims of the key get this response.
+     */
+    public static void completed(String key, String userId, Map<String, Object> response) {
+        remember(key, userId, response);
+        inFlight.remove(key);
+    }
+
+    /**
+     * Releases a key whose request failed before placing an order, so the
+     * customer can try again with it.
+     */
+    public static void abandon(String key) {
+        try {
+            repository.deletePending(key);
+        } catch (Exception e) {
+            persistFailed("abandon", e);
+        } finally {
+            inFlight.remove(key);
+        }
+    }
+
+    /**
+     * Forgets keys older than {@link #KEY_TTL}. Run by the background thread.
+     */
+    public static void purgeExpired() {
+        Instant cutoff = Instant.now().minus(KEY_TTL);
+        synchronized (recent) {
+            recent.values().removeIf(completed -> completed.completedAt.isBefore(cutoff));
+        }
+        try {
+            repository.deleteOlderThan(cutoff);
+        } catch (Exception e) {
+            persistFailed("purge", e);
+        }
+    }
+
+    /**
+     * Counters for the admin metrics endpoint.
+     */
+    public static Map<String, Object> getStats() {
+        int cached;
+        synchronized (recent) {
+            cached = recent.size();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cachedKeys", cached);
+        stats.put("inFlight", inFlight.size());
+        stats.put("ttlHours", KEY_TTL.toHours());
+        stats.put("claimed", claimed.get());
+        stats.put("replayed", replayed.get());
+        stats.put("conflicts", conflicts.get());
+        stats.put("reclaimed", reclaimed.get());
+        stats.put("persistFailures", persistFailures.get());
+        return stats;
+    }
+
+    private static Optional<Map<String, Object>> cachedResponse(String key, String userId) {
+        Completed completed;
+        synchronized (recent) {
+            completed = recent.get(key);
+        }
+        if (completed == null) {
+            return Optional.empty();
+        }
+        if (!completed.userId.equals(userId)) {
+            throw new IllegalArgumentException("Kunci checkout tidak valid, silakan mulai dari checkout");
+        }
+        replayed.incrementAndGet();
+        return Optional.of(completed.response);
+    }
+
+    private static void remember(String key, String userId, Map<String, Object> response) {
+        Completed completed = new Completed(userId, Map.copyOf(response), Instant.now());
+        synchronized (recent) {
+            recent.put(key, completed);
+        }
+    }
+
+    private static Map<String, Object> readResponse(String json) {
+        try {
+            return json != null ? MAPPER.readValue(json, new TypeReference<Map<String, Object>>() {}) : Map.of();
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Respons tersimpan tidak valid: " + e.getMessage(), e);
+        }
+    }
+
+    private static IllegalStateException inProgress() {
+        conflicts.incrementAndGet();
+        return new IllegalStateException("Pembayaran sedang diproses, mohon tunggu");
+    }
+
+    private static void persistFailed(String operation, Exception e) {
+        persistFailures.incrementAndGet();
+        System.err.println("[IdempotencyKeys] " + operation + " failed: " + e.getMessage());
+    }
+
+    /**
+     * Response of a finished key.
+     */
+    private static final class Completed {
+        private final String userId;
+        private final Map<String, Object> response;
+        private final Instant completedAt;
+
+        private Completed(String userId, Map<String, Object> response, Instant completedAt) {
+            this.userId = userId;
+            this.response = response;
+            this.completedAt = completedAt;
+        }
+    }
+}
@@ -1,11 +1,20 @@
 package com.combiphar.core.service;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.function.IntUnaryOperator;
 
+import com.combiphar.core.model.CatalogFacets;
+import com.combiphar.core.model.CatalogFilter;
+import com.combiphar.core.model.CatalogPage;
+import com.combiphar.core.model.CatalogSuggestion;
 import com.combiphar.core.model.Item;
+import com.combiphar.core.model.ItemSummary;
 import com.combiphar.core.repository.ItemRepository;
 import com.combiphar.core.repository.CategoryRepository;
+import com.combiphar.core.repository.RowCallback;
+import com.combiphar.core.util.CatalogCursor;
 
 /**
  * Service for managing items/products.
@@ -27,6 +36,13 @@ public class ItemService {
         return itemRepository.findAll();
     }
 
+    /**
+     * Get all items as listing summaries (for admin grids)
+     */
+    public List<ItemSummary> getAllItemSummaries() {
+        return itemRepository.findAllSummaries();
+    }
+
     /**
      * Get item by ID
      */
@@ -50,21 +66,105 @@ public class ItemService {
     }
 
     /**
-     * Get published items (for customer catalog)
+     * Get published items as listing summaries (for customer catalog)
      */
-    public List<Item> getPublishedItems() {
-        return itemRepository.findPublished();
+    public List<ItemSummary> getPublishedItems() {
+        CatalogSnapshot snapshot = CatalogCache.get();
+        if (snapshot != null) {
+            return snapshot.getPublishedItems();
+        }
+        return itemRepository.findPublishedSummaries();
     }
 
     /**
-     * Search published items with filters for customer catalog
+     * Stream published items as listing summaries, from the catalog snapshot
+     * or straight from the database while the cache is cold
+     */
+    public void forEachPublishedItem(RowCallback<ItemSummary> callback) throws IOException {
+        CatalogSnapshot snapshot = CatalogCache.get();
+        if (snapshot == null) {
+            itemRepository.forEachPublishedSummary(callback);
+            return;
+        }
+        for (ItemSummary item : snapshot.getPublishedItems()) {
+            callback.accept(item);
+        }
+    }
+
+    /**
+     * Stream items, optionally filtered by category or eligibility status
+     */
+    public void forEachItem(String categoryId, String status, RowCallback<Item> callback) throws IOException {
+        itemRepository.forEachItem(categoryId, status, callback);
+    }
+
+    /**
+     * Search published items with filters for customer catalog, one keyset
+     * page at a time. Answered from the catalog snapshot, where text queries
+     * are typo-tolerant and ranked by relevance; falls back to a newest-first
+     * LIKE query while the cache is cold.
      * 
-     * @param searchQuery search term for name (can be null)
-     * @param categoryId  filter by category (can be null)
-     * @return list of matching published items
+     * @param filter text and facet filters
+     * @param cursor encoded cursor from the previous page (can be null)
+     * @param limit  page size
+     * @return page of matching published items
+     */
+    public CatalogPage searchPublishedItems(CatalogFilter filter, String cursor, int limit) {
+        CatalogCursor after = CatalogCursor.decode(cursor);
+        CatalogSnapshot snapshot = CatalogCache.get();
+        if (snapshot != null) {
+            return snapshot.getSearchIndex().page(filter, after, limit);
+        }
+
+        List<ItemSummary> rows = itemRepository.searchPublishedItems(filter, after, limit + 1);
+        boolean hasMore = rows.size() > limit;
+        return CatalogPage.of(hasMore ? rows.subList(0, limit) : rows, hasMore,
+                itemRepository.countPublishedItems(filter));
+    }
+
+    /**
+     * Facet counts for the customer catalog under the given filter, or null
+     * while the catalog cache is cold
+     */
+    public CatalogFacets getCatalogFacets(CatalogFilter filter) {
+        CatalogSnapshot snapshot = CatalogCache.get();
+        return snapshot != null ? snapshot.getSearchIndex().facets(filter) : null;
+    }
+
+    /**
+     * Typeahead completions for the catalog search box. Served from the
+     * catalog snapshot only; empty while the cache is cold.
      */
-    public List<Item> searchPublishedItems(String searchQuery, String categoryId) {
-        return itemRepository.searchPublishedItems(searchQuery, categoryId);
+    public List<CatalogSuggestion> suggest(String prefix, int limit) {
+        CatalogSnapshot snapshot = CatalogCache.get();
+        return snapshot != null ? snapshot.getSuggester().suggest(prefix, limit) : List.of();
+    }
+
+    /**
+     * Get a published, eligible item for the customer product page
+     */
+    public Item getPublishedItemById(String id) {
+        CatalogSnapshot snapshot = CatalogCache.get();
+        if (snapshot != null) {
+            Item item = snapshot.getPublishedItem(id);
+            if (item == null) {
+                throw new RuntimeException("Item tidak ditemukan");
+            }
+            return item;
+        }
+
+        Item item = getItemById(id);
+        if (!Boolean.TRUE.equals(item.getIsPublished()) || !"ELIGIBLE".equals(item.getEligibilityStatus())) {
+            throw new RuntimeException("Item tidak ditemukan");
+        }
+        return item;
+    }
+
+    /**
+     * Schedule a rebuild of the published-catalog snapshot after a write
+     */
+    public void refreshCatalog() {
+        CatalogCache.scheduleRebuild();
     }
 
     /**
@@ -82,6 +182,15 @@ public class ItemService {
     public Item createItem(String categoryId, String name, String condition,
             String description, BigDecimal price, Integer stock,
             String eligibilityStatus, Boolean isPublished, String imageUrl) {
+        Item saved = insertItem(categoryId, name, condition, description, price, stock, eligibilityStatus,
+                isPublished, imageUrl);
+        refreshCatalog();
+        return saved;
+    }
+
+    private Item insertItem(String categoryId, String name, String condition,
+            String description, BigDecimal price, Integer stock,
+            String eligibilityStatus, Boolean isPublished, String imageUrl) {
         // Validate category exists
         categoryRepository.findById(categoryId)
                 .orElseThrow(() -> new RuntimeException("Kategori tidak ditemukan"));
@@ -124,6 +233,15 @@ public class ItemService {
     public Item updateItem(String id, String categoryId, String name, String condition,
             String description, BigDecimal price, Integer stock,
             String eligibilityStatus, Boolean isPublished, String imageUrl) {
+        Item updated = replaceItem(id, categoryId, name, condition, description, price, stock, eligibilityStatus,
+                isPublished, imageUrl);
+        refreshCatalog();
+        return updated;
+    }
+
+    private Item replaceItem(String id, String categoryId, String name, String condition,
+            String description, BigDecimal price, Integer stock,
+            String eligibilityStatus, Boolean isPublished, String imageUrl) {
         // Check if item exists
         Item existingItem = getItemById(id);
 
@@ -157,20 +275,21 @@ public class ItemService {
     }
 
     /**
-     * Create or update item based on ID for CSV import.
+     * Create or update item based on ID for CSV import. Leaves the catalog
+     * snapshot alone; the import calls {@link #refreshCatalog()} once at the end.
      */
     public Item upsertItemFromImport(String id, String categoryId, String name, String condition,
             String description, BigDecimal price, Integer stock,
             String eligibilityStatus, Boolean isPublished, String imageUrl) {
         if (id != null && !id.trim().isEmpty()) {
             return itemRepository.findById(id)
-                    .map(existing -> updateItem(existing.getId(), categoryId, name, condition, description, price,
+                    .map(existing -> replaceItem(existing.getId(), categoryId, name, condition, description, price,
                             stock, eligibilityStatus, isPublished, imageUrl))
-                    .orElseGet(() -> createItem(categoryId, name, condition, description, price, stock,
+                    .orElseGet(() -> insertItem(categoryId, name, condition, description, price, stock,
                             eligibilityStatus, isPublished, imageUrl));
         }
 
-        return createItem(categoryId, name, condition, description, price, stock, eligibilityStatus, isPublished,
+        return insertItem(categoryId, name, condition, description, price, stock, eligibilityStatus, isPublished,
                 imageUrl);
     }
 
@@ -186,7 +305,9 @@ public class ItemService {
         // Check if item exists
         getItemById(id);
 
-        return itemRepository.updateEligibilityStatus(id, status);
+        boolean updated = itemRepository.updateEligibilityStatus(id, status);
+        refreshCatalog();
+        return updated;
     }
 
     /**
@@ -200,7 +321,29 @@ public class ItemService {
         // Check if item exists
         getItemById(id);
 
-        return itemRepository.updateStock(id, quantity);
+        boolean updated = itemRepository.updateStock(id, quantity);
+        refreshCatalog();
+        return updated;
+    }
+
+    /**
+     * Changes item stock atomically from its current value.
+     *
+     * @param change computes the new stock from the current one
+     * @return {old stock, new stock}, or null if the item does not exist
+     */
+    public int[] changeStock(String id, IntUnaryOperator change) {
+        int[] result = itemRepository.changeStock(id, stock -> {
+            int updated = change.applyAsInt(stock);
+            if (updated < 0) {
+                throw new RuntimeException("Stok tidak boleh negatif");
+            }
+            return updated;
+        });
+        if (result != null) {
+            CatalogCache.adjustStock(id, result[1] - result[0]);
+        }
+        return result;
     }
 
     /**
@@ -214,13 +357,16 @@ public class ItemService {
         if (!deleted) {
             throw new RuntimeException("Gagal menghapus item");
         }
+        refreshCatalog();
     }
 
     /**
      * Delete all items by category ID
      */
     public int deleteItemsByCategoryId(String categoryId) {
-        return itemRepository.deleteByCategoryId(categoryId);
+        int deleted = itemRepository.deleteByCategoryId(categoryId);
+        refreshCatalog();
+        return deleted;
     }
 
     /**
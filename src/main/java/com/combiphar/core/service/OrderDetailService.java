@@ -0,0 +1,135 @@
+package com.combiphar.core.service;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.combiphar.core.model.Order;
+import com.combiphar.core.model.OrderDetail;
+import com.combiphar.core.model.OrderItem;
+import com.combiphar.core.model.Payment;
+import com.combiphar.core.model.Shipment;
+import com.combiphar.core.repository.OrderItemRepository;
+import com.combiphar.core.repository.OrderRepository;
+import com.combiphar.core.repository.PaymentRepository;
+import com.combiphar.core.util.EnvConfig;
+
+/**
+ * Loads an order with its payment, lines and shipment for the tracking page.
+ * The order is read and checked against the customer first; the three other
+ * lookups do not depend on each other and run at the same time on a small
+ * shared pool, so the page waits about as long as the slowest of them.
+ *
+ * The lookups share one deadline of {@link #LOOKUP_TIMEOUT_MS}: the page
+ * stops waiting then, and each query carries a statement timeout so MySQL
+ * cancels it and the connection goes back to the pool. A lookup that fails
+ * or runs late is flagged unavailable in the result instead of failing the
+ * page. When the pool and its queue are full the lookups run on the request
+ * thread.
+ */
+public class OrderDetailService {
+
+    /** Worker threads shared by all requests, overridable with ORDER_DETAIL_THREADS. */
+    private static final int THREADS = (int) Math.max(1, EnvConfig.getLong("ORDER_DETAIL_THREADS", 8));
+    /** Lookups waiting for a worker before callers run their own. */
+    private static final int QUEUE_SIZE = 64;
+    /** Wait per lookup, overridable with ORDER_DETAIL_TIMEOUT_MS. */
+    private static final long LOOKUP_TIMEOUT_MS = Math.max(100, EnvConfig.getLong("ORDER_DETAIL_TIMEOUT_MS", 2000));
+    /** Statement timeout for the lookups; JDBC counts in whole seconds. */
+    private static final int QUERY_TIMEOUT_SECONDS = (int) Math.max(1, (LOOKUP_TIMEOUT_MS + 999) / 1000);
+
+    private static final ThreadPoolExecutor executor = createExecutor();
+
+    private final OrderRepository orderRepository;
+    private final PaymentRepository paymentRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final ShipmentService shipmentService;
+
+    public OrderDetailService(ShipmentService shipmentService) {
+        this(new OrderRepository(), new PaymentRepository(), new OrderItemRepository(), shipmentService);
+    }
+
+    public OrderDetailService(OrderRepository orderRepo, PaymentRepository paymentRepo,
+            OrderItemRepository itemRepo, ShipmentService shipmentService) {
+        this.orderRepository = Objects.requireNonNull(orderRepo);
+        this.paymentRepository = Objects.requireNonNull(paymentRepo);
+        this.orderItemRepository = Objects.requireNonNull(itemRepo);
+        this.shipmentService = Objects.requireNonNull(shipmentService);
+    }
+
+    /**
+     * Loads the order if it belongs to the user.
+     *
+     * @return empty if the order does not exist or belongs to someone else
+     */
+    public Optional<OrderDetail> findForUser(String orderId, String userId) {
+        if (orderId == null || orderId.isBlank() || userId == null) {
+            return Optional.empty();
+        }
+        Optional<Order> found = orderRepository.findById(orderId);
+        if (found.isEmpty() || !userId.equals(found.get().getUserId())) {
+            return Optional.empty();
+        }
+
+        Future<Optional<Payment>> paymentLookup = executor.submit(
+                () -> paymentRepository.findByOrderId(orderId, QUERY_TIMEOUT_SECONDS));
+        Future<List<OrderItem>> itemsLookup = executor.submit(
+                () -> orderItemRepository.findByOrderId(orderId, QUERY_TIMEOUT_SECONDS));
+        Future<Optional<Shipment>> shipmentLookup = executor.submit(
+                () -> shipmentService.getShipmentByOrderId(orderId, QUERY_TIMEOUT_SECONDS));
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LOOKUP_TIMEOUT_MS);
+        Optional<Optional<Payment>> payment = await(paymentLookup, deadline, "payment", orderId);
+        Optional<List<OrderItem>> items = await(itemsLookup, deadline, "items", orderId);
+        Optional<Optional<Shipment>> shipment = await(shipmentLookup, deadline, "shipment", orderId);
+
+        return Optional.of(new OrderDetail(found.get(),
+                payment.flatMap(p -> p).orElse(null),
+                items.orElse(List.of()),
+                shipment.flatMap(s -> s).orElse(null),
+                payment.isEmpty(), items.isEmpty(), shipment.isEmpty()));
+    }
+
+    /**
+     * Waits for one lookup, giving up at the deadline shared by all lookups
+     * of the page.
+     *
+     * @param deadline {@link System#nanoTime()} value to stop waiting at
+     * @return the result, or empty if the lookup failed or timed out
+     */
+    private static <T> Optional<T> await(Future<T> future, long deadline, String name, String orderId) {
+        try {
+            return Optional.ofNullable(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            System.err.println("[OrderDetailService] " + name + " lookup for order " + orderId
+                    + " timed out after " + LOOKUP_TIMEOUT_MS + " ms");
+        } catch (ExecutionException e) {
+            System.err.println("[OrderDetailService] " + name + " lookup for order " + orderId
+                    + " failed: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+        }
+        return Optional.empty();
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_SIZE), r -> {
+                    Thread thread = new Thread(r, "order-detail-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
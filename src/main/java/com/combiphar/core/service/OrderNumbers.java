@@ -0,0 +1,70 @@
+package com.combiphar.core.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.combiphar.core.repository.SequenceRepository;
+import com.combiphar.core.util.EnvConfig;
+
+/**
+ * Process-wide order number allocator. Numbers look like
+ * {@code ORD-01-00001234}: the node prefix (ORDER_NODE_ID, default 1) and a
+ * sequence reserved from number_sequences {@link #BLOCK_SIZE} values at a
+ * time. Handing out a number is an {@link AtomicLong} increment; only the
+ * thread that exhausts a block goes to the database. Numbers from one node
+ * strictly increase; a restart skips the rest of the current block.
+ */
+public final class OrderNumbers {
+
+    /** Sequence name in number_sequences. */
+    private static final String SEQUENCE = "order_number";
+    /** Values reserved per database round trip. */
+    private static final int BLOCK_SIZE = 100;
+    /** Node prefix, so nodes sharing the counter stay distinguishable. */
+    private static final String NODE = String.format("%02d",
+            Math.max(0, Math.min(99, EnvConfig.getLong("ORDER_NODE_ID", 1))));
+
+    private static final SequenceRepository sequenceRepository = new SequenceRepository();
+    private static final AtomicReference<Block> current = new AtomicReference<>(new Block(0, 0));
+
+    private OrderNumbers() {
+    }
+
+    /**
+     * Returns the next order number.
+     */
+    public static String next() {
+        while (true) {
+            Block block = current.get();
+            long value = block.next.getAndIncrement();
+            if (value < block.end) {
+                return String.format("ORD-%s-%08d", NODE, value);
+            }
+            refill(block);
+        }
+    }
+
+    /**
+     * Replaces the exhausted block, unless another thread already did.
+     */
+    private static synchronized void refill(Block exhausted) {
+        if (current.get() != exhausted) {
+            return;
+        }
+        long start = sequenceRepository.allocate(SEQUENCE, BLOCK_SIZE);
+        current.set(new Block(start, start + BLOCK_SIZE));
+    }
+
+    /**
+     * A reserved range [next, end).
+     */
+    private static final class Block {
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
@@ -1,35 +1,44 @@
 package com.combiphar.core.service;
 
 import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
+import com.combiphar.core.config.DatabaseConfig;
+import com.combiphar.core.config.TransactionWork;
+import com.combiphar.core.model.Address;
 import com.combiphar.core.model.Cart;
 import com.combiphar.core.model.CartItem;
+import com.combiphar.core.model.CartWarning;
 import com.combiphar.core.model.Order;
 import com.combiphar.core.model.OrderHistory;
 import com.combiphar.core.model.OrderItem;
 import com.combiphar.core.model.OrderSummary;
 import com.combiphar.core.model.Payment;
+import com.combiphar.core.model.Shipment;
+import com.combiphar.core.repository.AddressRepository;
+import com.combiphar.core.repository.ItemRepository;
 import com.combiphar.core.repository.OrderItemRepository;
 import com.combiphar.core.repository.OrderRepository;
 import com.combiphar.core.repository.PaymentRepository;
+import com.combiphar.core.util.Pagination;
 
 /**
  * Service for order calculations and management.
  */
 public class OrderService {
 
-    private static final Map<String, BigDecimal> COURIER_RATES = Map.of(
-            "Premium Logistics (2-3 hari)", new BigDecimal("15000"),
-            "Standard Logistics (5-7 hari)", new BigDecimal("12000"),
-            "Express Logistics (1 hari)", new BigDecimal("20000"));
-
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
     private final PaymentRepository paymentRepository;
+    private final ItemRepository itemRepository;
+    private final AddressRepository addressRepository;
+    private final CartValidator cartValidator;
 
     public OrderService() {
         this(new OrderRepository(), new OrderItemRepository(), new PaymentRepository());
@@ -39,57 +48,200 @@ public class OrderService {
         this.orderRepository = orderRepo;
         this.orderItemRepository = itemRepo;
         this.paymentRepository = paymentRepo;
+        this.itemRepository = new ItemRepository();
+        this.addressRepository = new AddressRepository();
+        this.cartValidator = new CartValidator(itemRepository);
     }
 
     public OrderSummary calculateOrderSummary(Cart cart, String courierName) {
+        return calculateOrderSummary(cart, courierName, null);
+    }
+
+    /**
+     * Summary with shipping priced for the destination postal code and the
+     * cart's unit count.
+     *
+     * @param postalCode destination; null prices for the default zone
+     */
+    public OrderSummary calculateOrderSummary(Cart cart, String courierName, String postalCode) {
         if (cart == null || cart.isEmpty()) {
             throw new IllegalArgumentException("Cart tidak boleh kosong");
         }
-        return new OrderSummary(cart.getTotalPrice(), getShippingCost(courierName), courierName);
+        return new OrderSummary(cart.getTotalPrice(),
+                getShippingCost(courierName, postalCode, cart.getTotalQuantity()), courierName);
     }
 
-    public BigDecimal getShippingCost(String courierName) {
+    /**
+     * Shipping cost from {@link ShippingTariffs}; zero when no courier is
+     * chosen.
+     *
+     * @throws IllegalArgumentException if the courier is unknown or does not
+     *         serve the destination
+     */
+    public BigDecimal getShippingCost(String courierName, String postalCode, int units) {
         if (courierName == null || courierName.isBlank()) {
             return BigDecimal.ZERO;
         }
-        return COURIER_RATES.entrySet().stream()
-                .filter(e -> e.getKey().equalsIgnoreCase(courierName.trim()))
-                .map(Map.Entry::getValue).findFirst().orElse(BigDecimal.ZERO);
+        return ShippingTariffs.quote(courierName, postalCode, units);
+    }
+
+    /**
+     * Couriers serving the postal code with their cost for the given units,
+     * in display order.
+     */
+    public Map<String, BigDecimal> getAvailableCouriers(String postalCode, int units) {
+        return ShippingTariffs.courierRates(postalCode, units);
+    }
+
+    /**
+     * Postal code of the address, or null if it cannot be read.
+     */
+    public String findPostalCode(String addressId) {
+        if (addressId == null || addressId.isBlank()) {
+            return null;
+        }
+        try {
+            return addressRepository.findById(addressId).map(Address::getPostalCode).orElse(null);
+        } catch (SQLException e) {
+            throw new RuntimeException("Gagal memuat alamat: " + e.getMessage(), e);
+        }
     }
 
-    public Map<String, BigDecimal> getAvailableCouriers() {
-        return new HashMap<>(COURIER_RATES);
+    /**
+     * Revalidates the cart for checkout with one query and moves lines whose
+     * price changed to the current price.
+     *
+     * @return warnings for the checkout page; blocking ones must send the
+     *         customer back to the cart
+     */
+    public List<CartWarning> refreshCartForCheckout(Cart cart) {
+        return cartValidator.refresh(cart);
     }
 
     public Order createOrder(String userId, String addressId, Cart cart, String courierName, String bank, String proofPath) {
+        return createOrder(userId, addressId, cart, courierName, bank, proofPath, conn -> null);
+    }
+
+    /**
+     * Places the order and runs extra work in the same transaction, such as
+     * finishing the checkout's idempotency key; if either fails, neither is
+     * committed.
+     */
+    public Order createOrder(String userId, String addressId, Cart cart, String courierName, String bank,
+            String proofPath, TransactionWork<?> alsoInTransaction) {
         if (cart == null || cart.isEmpty()) {
             throw new IllegalArgumentException("Cart tidak boleh kosong");
         }
+        // Stale carts (sold out, unpublished, repriced since checkout) never reach payment
+        cartValidator.requireValid(cart);
 
-        OrderSummary summary = calculateOrderSummary(cart, courierName);
-        Order order = new Order(userId, addressId, summary.getTotalPrice(), courierName);
-        orderRepository.save(order);
-
+        OrderSummary summary = calculateOrderSummary(cart, courierName, findPostalCode(addressId));
+        Order order = new Order(OrderNumbers.next(), userId, addressId, summary.getTotalPrice(), courierName);
+        List<OrderItem> orderItems = new ArrayList<>();
         for (CartItem ci : cart.getItems()) {
-            orderItemRepository.save(new OrderItem(order.getId(), ci.getItemId(), ci.getQuantity(), ci.getItemPrice()));
+            orderItems.add(new OrderItem(order.getId(), orderItems.size(), ci.getItemId(), ci.getQuantity(),
+                    ci.getItemPrice()));
+        }
+        Payment payment = new Payment(order.getId(), summary.getTotalPrice(), bank, proofPath, "PENDING");
+
+        // Stock, order, lines and payment are written together or not at all
+        SortedMap<String, Integer> quantities = quantitiesByItem(orderItems);
+        try (StockLocks.Held locks = StockLocks.acquire(quantities.keySet())) {
+            DatabaseConfig.inTransaction(conn -> {
+                decrementStock(conn, quantities);
+                orderRepository.save(conn, order);
+                orderItemRepository.saveAll(conn, orderItems);
+                paymentRepository.save(conn, payment);
+                alsoInTransaction.execute(conn);
+                return null;
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Gagal membuat pesanan: " + e.getMessage(), e);
         }
 
-        paymentRepository.save(new Payment(order.getId(), summary.getTotalPrice(), bank, proofPath, "PENDING"));
+        // The order now owns these units; the cart's holds are no longer needed
+        StockReservations.release(cart.getHolderId(), cart.getItems().stream().map(CartItem::getItemId).toList());
+        CatalogCache.recordSale(quantities);
         return order;
     }
 
+    /**
+     * Takes the ordered units off items.stock inside the caller's
+     * transaction, one conditional UPDATE per item in item ID order, so
+     * concurrent multi-line orders lock rows in the same order and cannot
+     * deadlock. Callers hold {@link StockLocks} for the same items.
+     *
+     * @param quantities units per item ID, iterated in ID order
+     * @throws IllegalArgumentException if an item has too few units left;
+     *         the transaction must then be rolled back
+     */
+    public void decrementStock(Connection conn, SortedMap<String, Integer> quantities) throws SQLException {
+        for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+            if (!itemRepository.decrementStock(conn, entry.getKey(), entry.getValue())) {
+                throw new IllegalArgumentException(
+                        "Stok produk sudah habis dipesan pelanggan lain. Silakan periksa kembali keranjang Anda");
+            }
+        }
+    }
+
+    private SortedMap<String, Integer> quantitiesByItem(List<OrderItem> orderItems) {
+        SortedMap<String, Integer> quantities = new TreeMap<>();
+        for (OrderItem orderItem : orderItems) {
+            quantities.merge(orderItem.getItemId(), orderItem.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
     public List<OrderHistory> getOrderHistory(String userId) {
         return getOrderHistory(userId, null);
     }
 
     public List<OrderHistory> getOrderHistory(String userId, ShipmentService shipmentService) {
-        List<OrderHistory> history = new ArrayList<>();
-        for (Order order : orderRepository.findByUserId(userId)) {
-            List<OrderItem> items = orderItemRepository.findByOrderId(order.getId());
-            String firstItemName = orderItemRepository.findFirstItemNameByOrderId(order.getId());
-            var shipment = shipmentService != null ? shipmentService.getShipmentByOrderId(order.getId()).orElse(null) : null;
-            history.add(new OrderHistory(order, items, firstItemName, shipment));
+        return buildHistory(orderRepository.findByUserId(userId), shipmentService);
+    }
+
+    /**
+     * One page of the user's order history, newest first. Costs a count, the
+     * page of orders, and one query each for their items (with names) and
+     * shipments, however many orders the page holds.
+     *
+     * @param page the 1-based page; moved into range if it is past the end
+     * @param shipmentService source of shipments, or null to leave them out
+     */
+    public Pagination<OrderHistory> getOrderHistoryPage(String userId, int page, int pageSize,
+            ShipmentService shipmentService) {
+        int total = orderRepository.countByUserId(userId);
+        int currentPage = Pagination.clampPage(page, pageSize, total);
+        List<Order> orders = orderRepository.findByUserId(userId, (currentPage - 1) * pageSize, pageSize);
+        return Pagination.ofPage(buildHistory(orders, shipmentService), currentPage, pageSize, total);
+    }
+
+    private List<OrderHistory> buildHistory(List<Order> orders, ShipmentService shipmentService) {
+        if (orders.isEmpty()) {
+            return List.of();
+        }
+        List<String> orderIds = orders.stream().map(Order::getId).toList();
+        Map<String, List<OrderItem>> items = orderItemRepository.findByOrderIds(orderIds);
+        Map<String, Shipment> shipments = shipmentService != null
+                ? shipmentService.getShipmentsByOrderIds(orderIds) : Map.of();
+
+        List<OrderHistory> history = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            List<OrderItem> lines = items.getOrDefault(order.getId(), List.of());
+            history.add(new OrderHistory(order, lines, firstItemName(lines), shipments.get(order.getId())));
         }
         return history;
     }
+
+    /**
+     * Name of the first line, by line number, whose item still exists.
+     */
+    private static String firstItemName(List<OrderItem> lines) {
+        for (OrderItem line : lines) {
+            if (line.getItemName() != null) {
+                return line.getItemName();
+            }
+        }
+        return null;
+    }
 }
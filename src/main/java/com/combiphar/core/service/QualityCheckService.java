@@ -62,6 +62,16 @@ public class QualityCheckService {
      * @return true if status was updated successfully
      */
     public boolean performQualityCheck(String itemId, String newStatus, String notes) {
+        boolean updated = applyQualityCheck(itemId, newStatus);
+        CatalogCache.scheduleRebuild();
+        return updated;
+    }
+
+    /**
+     * Updates the item status without touching the catalog cache, so batch
+     * operations can rebuild it once at the end.
+     */
+    private boolean applyQualityCheck(String itemId, String newStatus) {
         // Validate status
         if (!isValidEligibilityStatus(newStatus)) {
             throw new RuntimeException("Status tidak valid. Gunakan: ELIGIBLE, NEEDS_QC, atau NEEDS_REPAIR");
@@ -89,7 +99,7 @@ public class QualityCheckService {
 
         for (String itemId : itemIds) {
             try {
-                if (performQualityCheck(itemId, "ELIGIBLE", "Batch approved")) {
+                if (applyQualityCheck(itemId, "ELIGIBLE")) {
                     approved++;
                 }
             } catch (Exception e) {
@@ -98,6 +108,7 @@ public class QualityCheckService {
             }
         }
 
+        CatalogCache.scheduleRebuild();
         return approved;
     }
 
@@ -109,7 +120,7 @@ public class QualityCheckService {
 
         for (String itemId : itemIds) {
             try {
-                if (performQualityCheck(itemId, "NEEDS_REPAIR", "Batch rejected")) {
+                if (applyQualityCheck(itemId, "NEEDS_REPAIR")) {
                     rejected++;
                 }
             } catch (Exception e) {
@@ -118,6 +129,7 @@ public class QualityCheckService {
             }
         }
 
+        CatalogCache.scheduleRebuild();
         return rejected;
     }
 
@@ -0,0 +1,149 @@
+package com.combiphar.core.service;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of rendered HTML for anonymous catalog pages. Entries are
+ * tagged with the {@link CatalogSnapshot} version they were rendered from;
+ * once a newer version is seen the whole cache is dropped, and late writes
+ * rendered from an older version are ignored. Pages also remember the
+ * {@link StockReservations} version of the items they show and are dropped
+ * when a hold on one of those items changes, so cart activity on other items
+ * does not empty the cache.
+ */
+public final class RenderedPageCache {
+
+    /** Budget for all cached bodies, approximated as two bytes per char. */
+    private static final long MAX_TOTAL_BYTES = 16L * 1024 * 1024;
+    /** Bodies larger than this are rendered every time. */
+    private static final long MAX_ENTRY_BYTES = 512L * 1024;
+
+    private static final LinkedHashMap<String, Page> pages = new LinkedHashMap<>(64, 0.75f, true);
+
+    private static long version = -1;
+    private static long totalBytes;
+    private static long hits;
+    private static long misses;
+    private static long evictions;
+    private static long bypasses;
+    private static long holdChanges;
+
+    private RenderedPageCache() {
+    }
+
+    /**
+     * Returns the cached body for the key, or null if it is not cached for
+     * the given catalog version.
+     */
+    public static synchronized String get(String key, long catalogVersion) {
+        advanceTo(catalogVersion);
+        Page page = catalogVersion == version ? pages.get(key) : null;
+        if (page != null && StockReservations.getVersion(page.itemIds) != page.holdVersion) {
+            pages.remove(key);
+            totalBytes -= sizeOf(page.html);
+            holdChanges++;
+            page = null;
+        }
+        if (page != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return page != null ? page.html : null;
+    }
+
+    /**
+     * Stores a rendered body, evicting least recently used pages to stay
+     * within the byte budget.
+     *
+     * @param itemIds items whose free stock the page shows
+     * @param holdVersion {@link StockReservations#getVersion(Collection)} of
+     *        those items, read before their stock was rendered
+     */
+    public static synchronized void put(String key, long catalogVersion, String html,
+            Collection<String> itemIds, long holdVersion) {
+        if (catalogVersion < 0 || html == null) {
+            return;
+        }
+        advanceTo(catalogVersion);
+        long size = sizeOf(html);
+        if (catalogVersion != version || size > MAX_ENTRY_BYTES) {
+            return;
+        }
+
+        Page previous = pages.put(key, new Page(html, List.copyOf(itemIds), holdVersion));
+        if (previous != null) {
+            totalBytes -= sizeOf(previous.html);
+        }
+        totalBytes += size;
+
+        Iterator<Map.Entry<String, Page>> eldest = pages.entrySet().iterator();
+        while (totalBytes > MAX_TOTAL_BYTES && eldest.hasNext()) {
+            totalBytes -= sizeOf(eldest.next().getValue().html);
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Records a request that skipped the cache (logged-in user or cart).
+     */
+    public static synchronized void recordBypass() {
+        bypasses++;
+    }
+
+    /**
+     * Drops every cached page.
+     */
+    public static synchronized void clear() {
+        pages.clear();
+        totalBytes = 0;
+    }
+
+    /**
+     * Counters for the admin metrics endpoint.
+     */
+    public static synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("catalogVersion", version);
+        stats.put("entries", pages.size());
+        stats.put("bytes", totalBytes);
+        stats.put("maxBytes", MAX_TOTAL_BYTES);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("evictions", evictions);
+        stats.put("bypasses", bypasses);
+        stats.put("holdChanges", holdChanges);
+        return stats;
+    }
+
+    private static void advanceTo(long catalogVersion) {
+        if (catalogVersion > version) {
+            clear();
+            version = catalogVersion;
+        }
+    }
+
+    private static long sizeOf(String html) {
+        return html.length() * 2L;
+    }
+
+    /**
+     * A cached body and the hold version of the items it shows.
+     */
+    private static final class Page {
+        private final String html;
+        private final List<String> itemIds;
+        private final long holdVersion;
+
+        private Page(String html, List<String> itemIds, long holdVersion) {
+            this.html = html;
+            this.itemIds = itemIds;
+            this.holdVersion = holdVersion;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.combiphar.core.service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -38,6 +40,22 @@ public class ShipmentService {
         return orderId == null || orderId.isBlank() ? Optional.empty() : shipmentRepository.findByOrderId(orderId);
     }
 
+    /**
+     * Like {@link #getShipmentByOrderId(String)}, with the query cancelled on
+     * the server after timeoutSeconds.
+     */
+    public Optional<Shipment> getShipmentByOrderId(String orderId, int timeoutSeconds) {
+        return orderId == null || orderId.isBlank() ? Optional.empty()
+                : shipmentRepository.findByOrderId(orderId, timeoutSeconds);
+    }
+
+    /**
+     * Shipments of the given orders in one query, keyed by order ID.
+     */
+    public Map<String, Shipment> getShipmentsByOrderIds(Collection<String> orderIds) {
+        return shipmentRepository.findByOrderIds(orderIds);
+    }
+
     public Shipment createShipment(String orderId, String addressId, String courierName) {
         Objects.requireNonNull(orderId, "Order ID wajib diisi");
         orderRepository.findById(orderId).orElseThrow(() -> new IllegalArgumentException("Order tidak ditemukan"));
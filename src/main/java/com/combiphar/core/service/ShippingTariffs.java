@@ -0,0 +1,438 @@
+package com.combiphar.core.service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.combiphar.core.util.EnvConfig;
+
+/**
+ * Process-wide shipping rate table: courier × origin warehouse × destination
+ * zone × quantity tier, read from database/shipping_tariffs.csv, with zones
+ * assigned to postal code prefixes in database/shipping_zones.csv.
+ *
+ * The files are compiled into an immutable {@link Table} of primitive
+ * arrays: rates are one flat long[] and zones are looked up by the first
+ * three digits of the postal code in a 1000-entry array, so a quote is a few
+ * array reads. A background thread reloads the table when either file
+ * changes; a file that fails to parse leaves the previous table in place.
+ * Without the files the built-in flat rates are used.
+ */
+public final class ShippingTariffs {
+
+    private static final Path TARIFF_FILE = Path.of(System.getProperty("user.dir"), "database", "shipping_tariffs.csv");
+    private static final Path ZONE_FILE = Path.of(System.getProperty("user.dir"), "database", "shipping_zones.csv");
+    /** Warehouse orders ship from, overridable with SHIPPING_ORIGIN. */
+    private static final String ORIGIN = EnvConfig.getString("SHIPPING_ORIGIN", "JKT");
+    /** Pause between checks for changed files. */
+    private static final long RELOAD_CHECK_MS = 30_000;
+
+    /** Rates used when there is no tariff file: one zone, the old flat prices. */
+    private static final List<String> BUILT_IN_TARIFFS = List.of(
+            "courier,origin,zone,min_units,rate",
+            "Premium Logistics (2-3 hari)," + ORIGIN + ",JAWA,1,15000",
+            "Standard Logistics (5-7 hari)," + ORIGIN + ",JAWA,1,12000",
+            "Express Logistics (1 hari)," + ORIGIN + ",JAWA,1,20000");
+    private static final List<String> BUILT_IN_ZONES = List.of("prefix,zone", "*,JAWA");
+
+    private static final AtomicLong reloads = new AtomicLong();
+    private static final AtomicLong reloadFailures = new AtomicLong();
+
+    private static volatile Table current = Table.parse(BUILT_IN_TARIFFS, BUILT_IN_ZONES, "built-in");
+    private static long loadedTariffStamp = -1;
+    private static long loadedZoneStamp = -1;
+    private static LocalDateTime lastReloadAt;
+    private static String lastError;
+    private static ScheduledExecutorService scheduler;
+
+    private ShippingTariffs() {
+    }
+
+    /**
+     * Loads the rate files and starts watching them. Safe to call more than
+     * once.
+     */
+    public static synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        reload();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "shipping-tariffs");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(ShippingTariffs::reloadIfChanged,
+                RELOAD_CHECK_MS, RELOAD_CHECK_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reads both files and swaps in the new table. On a parse error the old
+     * table stays.
+     *
+     * @return what was loaded, with an "error" entry on failure
+     */
+    public static synchronized Map<String, Object> reload() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        try {
+            long tariffStamp = stamp(TARIFF_FILE);
+            long zoneStamp = stamp(ZONE_FILE);
+            Table table = tariffStamp < 0
+                    ? Table.parse(BUILT_IN_TARIFFS, BUILT_IN_ZONES, "built-in")
+                    : Table.parse(Files.readAllLines(TARIFF_FILE, StandardCharsets.UTF_8),
+                            zoneStamp < 0 ? BUILT_IN_ZONES : Files.readAllLines(ZONE_FILE, StandardCharsets.UTF_8),
+                            TARIFF_FILE.getFileName().toString());
+            current = table;
+            loadedTariffStamp = tariffStamp;
+            loadedZoneStamp = zoneStamp;
+            lastError = null;
+            reloads.incrementAndGet();
+        } catch (IOException | IllegalArgumentException e) {
+            lastError = e.getMessage();
+            reloadFailures.incrementAndGet();
+            System.err.println("[ShippingTariffs] reload failed, keeping previous rates: " + e.getMessage());
+            report.put("error", e.getMessage());
+        }
+        lastReloadAt = LocalDateTime.now();
+        report.putAll(current.describe());
+        return report;
+    }
+
+    /**
+     * Reloads if either file was modified, created or removed since the last
+     * load. Run by the background thread.
+     */
+    public static synchronized void reloadIfChanged() {
+        try {
+            if (stamp(TARIFF_FILE) != loadedTariffStamp || stamp(ZONE_FILE) != loadedZoneStamp) {
+                reload();
+            }
+        } catch (IOException e) {
+            System.err.println("[ShippingTariffs] cannot check rate files: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Shipping cost for the courier to the postal code.
+     *
+     * @param postalCode destination postal code; null uses the default zone
+     * @param units number of units in the order
+     * @throws IllegalArgumentException if the courier is unknown or does not
+     *         serve the destination zone
+     */
+    public static BigDecimal quote(String courierName, String postalCode, int units) {
+        Table table = current;
+        int courier = table.courierIndex(courierName);
+        if (courier < 0) {
+            throw new IllegalArgumentException("Kurir tidak dikenal: " + courierName);
+        }
+        int zone = table.zoneOf(postalCode);
+        long rate = table.rate(courier, zone, units);
+        if (rate < 0) {
+            throw new IllegalArgumentException(table.couriers[courier] + " tidak melayani pengiriman ke zona "
+                    + table.zones[zone]);
+        }
+        return BigDecimal.valueOf(rate);
+    }
+
+    /**
+     * Couriers serving the postal code, in file order, with their cost for
+     * the given number of units.
+     */
+    public static Map<String, BigDecimal> courierRates(String postalCode, int units) {
+        Table table = current;
+        int zone = table.zoneOf(postalCode);
+        Map<String, BigDecimal> rates = new LinkedHashMap<>();
+        for (int courier = 0; courier < table.couriers.length; courier++) {
+            long rate = table.rate(courier, zone, units);
+            if (rate >= 0) {
+                rates.put(table.couriers[courier], BigDecimal.valueOf(rate));
+            }
+        }
+        return rates;
+    }
+
+    /**
+     * Name of the zone the postal code ships to.
+     */
+    public static String zoneOf(String postalCode) {
+        Table table = current;
+        return table.zones[table.zoneOf(postalCode)];
+    }
+
+    /**
+     * Counters for the admin metrics endpoint.
+     */
+    public static synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(current.describe());
+        stats.put("reloads", reloads.get());
+        stats.put("reloadFailures", reloadFailures.get());
+        stats.put("lastReloadAt", lastReloadAt != null ? lastReloadAt.toString() : null);
+        stats.put("lastError", lastError);
+        return stats;
+    }
+
+    /**
+     * Modification time of the file, or -1 if it does not exist.
+     */
+    private static long stamp(Path file) throws IOException {
+        return Files.exists(file) ? Files.getLastModifiedTime(file).toMillis() : -1;
+    }
+
+    /**
+     * One compiled rate table. Rates live in a flat array indexed by
+     * courier, origin, zone and tier; -1 means no service.
+     */
+    private static final class Table {
+        private static final int PREFIXES = 1000;
+
+        private final String source;
+        private final String[] couriers;
+        private final Map<String, Integer> courierByName;
+        private final String[] origins;
+        private final String[] zones;
+        private final int[] tierMins;
+        private final long[] rates;
+        private final short[] zoneByPrefix;
+        private final int fallbackZone;
+        private final int origin;
+
+        private Table(String source, String[] couriers, String[] origins, String[] zones, int[] tierMins,
+                long[] rates, short[] zoneByPrefix, int fallbackZone, int origin) {
+            this.source = source;
+            this.couriers = couriers;
+            this.origins = origins;
+            this.zones = zones;
+            this.tierMins = tierMins;
+            this.rates = rates;
+            this.zoneByPrefix = zoneByPrefix;
+            this.fallbackZone = fallbackZone;
+            this.origin = origin;
+            this.courierByName = new HashMap<>();
+            for (int i = 0; i < couriers.length; i++) {
+                courierByName.put(couriers[i].toLowerCase(Locale.ROOT), i);
+            }
+        }
+
+        private int courierIndex(String name) {
+            if (name == null) {
+                return -1;
+            }
+            Integer index = courierByName.get(name.trim().toLowerCase(Locale.ROOT));
+            return index != null ? index : -1;
+        }
+
+        /**
+         * Zone of the first three digits of the postal code, or the fallback
+         * zone for missing or malformed codes.
+         */
+        private int zoneOf(String postalCode) {
+            if (postalCode == null) {
+                return fallbackZone;
+            }
+            int prefix = 0;
+            int digits = 0;
+            for (int i = 0; i < postalCode.length() && digits < 3; i++) {
+                char ch = postalCode.charAt(i);
+                if (ch < '0' || ch > '9') {
+                    return fallbackZone;
+                }
+                prefix = prefix * 10 + (ch - '0');
+                digits++;
+            }
+            return digits == 3 && zoneByPrefix[prefix] >= 0 ? zoneByPrefix[prefix] : fallbackZone;
+        }
+
+        private long rate(int courier, int zone, int units) {
+            int tier = tierMins.length - 1;
+            while (tier > 0 && tierMins[tier] > units) {
+                tier--;
+            }
+            return rates[((courier * origins.length + origin) * zones.length + zone) * tierMins.length + tier];
+        }
+
+        private Map<String, Object> describe() {
+            Map<String, Object> info = new LinkedHashMap<>();
+            info.put("source", source);
+            info.put("origin", origins[origin]);
+            info.put("couriers", couriers.length);
+            info.put("origins", origins.length);
+            info.put("zones", zones.length);
+            info.put("tiers", tierMins.length);
+            info.put("rates", Arrays.stream(rates).filter(rate -> rate >= 0).count());
+            return info;
+        }
+
+        /**
+         * Compiles CSV lines into a table. Blank lines, lines starting with #
+         * and a header line are skipped.
+         *
+         * @throws IllegalArgumentException naming the first bad line
+         */
+        private static Table parse(List<String> tariffLines, List<String> zoneLines, String source) {
+            Map<String, Integer> couriers = new LinkedHashMap<>();
+            Map<String, Integer> origins = new LinkedHashMap<>();
+            Map<String, Integer> zones = new LinkedHashMap<>();
+            TreeSet<Integer> tierSet = new TreeSet<>();
+            List<long[]> rows = new ArrayList<>();
+
+            int lineNo = 0;
+            for (String line : tariffLines) {
+                lineNo++;
+                String[] cols = columns(line, "courier");
+                if (cols == null) {
+                    continue;
+                }
+                if (cols.length != 5) {
+                    throw new IllegalArgumentException("shipping_tariffs baris " + lineNo + ": harus 5 kolom");
+                }
+                int minUnits = number(cols[3], "shipping_tariffs", lineNo);
+                long rate = number(cols[4], "shipping_tariffs", lineNo);
+                if (minUnits < 1) {
+                    throw new IllegalArgumentException("shipping_tariffs baris " + lineNo + ": min_units minimal 1");
+                }
+                tierSet.add(minUnits);
+                rows.add(new long[] {index(couriers, cols[0]), index(origins, cols[1].toUpperCase(Locale.ROOT)),
+                        index(zones, cols[2].toUpperCase(Locale.ROOT)), minUnits, rate});
+            }
+            if (rows.isEmpty()) {
+                throw new IllegalArgumentException("shipping_tariffs tidak berisi tarif");
+            }
+            Integer origin = origins.get(ORIGIN.toUpperCase(Locale.ROOT));
+            if (origin == null) {
+                throw new IllegalArgumentException("Gudang asal " + ORIGIN + " tidak ada di shipping_tariffs");
+            }
+
+            // Zones: {first prefix, last prefix, zone}; wide ranges are applied first so narrow ones override them
+            List<int[]> zoneRows = new ArrayList<>();
+            Integer fallback = null;
+            lineNo = 0;
+            for (String line : zoneLines) {
+                lineNo++;
+                String[] cols = columns(line, "prefix");
+                if (cols == null) {
+                    continue;
+                }
+                if (cols.length != 2) {
+                    throw new IllegalArgumentException("shipping_zones baris " + lineNo + ": harus 2 kolom");
+                }
+                int zone = index(zones, cols[1].toUpperCase(Locale.ROOT));
+                if ("*".equals(cols[0])) {
+                    fallback = zone;
+                } else {
+                    int[] range = prefixRange(cols[0], lineNo);
+                    zoneRows.add(new int[] {range[0], range[1], zone});
+                }
+            }
+            if (fallback == null) {
+                throw new IllegalArgumentException("shipping_zones butuh baris '*' untuk kode pos yang tidak dikenal");
+            }
+            zoneRows.sort(Comparator.comparingInt(row -> row[0] - row[1]));
+            short[] zoneByPrefix = new short[PREFIXES];
+            Arrays.fill(zoneByPrefix, (short) -1);
+            for (int[] row : zoneRows) {
+                Arrays.fill(zoneByPrefix, row[0], row[1] + 1, (short) row[2]);
+            }
+
+            int[] tierMins = tierSet.stream().mapToInt(Integer::intValue).toArray();
+            int tiers = tierMins.length;
+            long[] rates = new long[couriers.size() * origins.size() * zones.size() * tiers];
+            Arrays.fill(rates, -1);
+            for (long[] row : rows) {
+                int tier = Arrays.binarySearch(tierMins, (int) row[3]);
+                rates[(int) (((row[0] * origins.size() + row[1]) * zones.size() + row[2]) * tiers + tier)] = row[4];
+            }
+            // A missing tier charges the tier below it; tiers below the lowest defined one charge that one
+            for (int start = 0; start < rates.length; start += tiers) {
+                int lowest = 0;
+                while (lowest < tiers && rates[start + lowest] < 0) {
+                    lowest++;
+                }
+                if (lowest == tiers) {
+                    continue; // courier does not serve this zone
+                }
+                Arrays.fill(rates, start, start + lowest, rates[start + lowest]);
+                for (int tier = lowest + 1; tier < tiers; tier++) {
+                    if (rates[start + tier] < 0) {
+                        rates[start + tier] = rates[start + tier - 1];
+                    }
+                }
+            }
+
+            return new Table(source, couriers.keySet().toArray(String[]::new),
+                    origins.keySet().toArray(String[]::new), zones.keySet().toArray(String[]::new),
+                    tierMins, rates, zoneByPrefix, fallback, origin);
+        }
+
+        /**
+         * Splits a CSV line, or returns null for blank, comment and header
+         * lines.
+         */
+        private static String[] columns(String line, String headerStart) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#") || trimmed.toLowerCase(Locale.ROOT).startsWith(headerStart + ",")) {
+                return null;
+            }
+            String[] cols = trimmed.split(",");
+            for (int i = 0; i < cols.length; i++) {
+                cols[i] = cols[i].trim();
+            }
+            return cols;
+        }
+
+        private static int index(Map<String, Integer> names, String name) {
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException("Nama kurir, gudang dan zona tidak boleh kosong");
+            }
+            return names.computeIfAbsent(name, n -> names.size());
+        }
+
+        private static int number(String value, String file, int lineNo) {
+            try {
+                int number = Integer.parseInt(value);
+                if (number < 0) {
+                    throw new NumberFormatException();
+                }
+                return number;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(file + " baris " + lineNo + ": angka tidak valid '" + value + "'");
+            }
+        }
+
+        /**
+         * The three-digit prefixes covered by a one- to three-digit prefix or
+         * prefix range, as {first, last}.
+         */
+        private static int[] prefixRange(String spec, int lineNo) {
+            String[] bounds = spec.split("-");
+            String from = bounds[0].trim();
+            String to = bounds.length > 1 ? bounds[1].trim() : from;
+            if (bounds.length > 2 || from.isEmpty() || from.length() > 3 || from.length() != to.length()) {
+                throw new IllegalArgumentException("shipping_zones baris " + lineNo + ": prefix tidak valid '" + spec + "'");
+            }
+            int scale = from.length() == 1 ? 100 : from.length() == 2 ? 10 : 1;
+            int first = number(from, "shipping_zones", lineNo) * scale;
+            int last = (number(to, "shipping_zones", lineNo) + 1) * scale - 1;
+            if (first > last) {
+                throw new IllegalArgumentException("shipping_zones baris " + lineNo + ": rentang terbalik '" + spec + "'");
+            }
+            return new int[] {first, last};
+        }
+    }
+}
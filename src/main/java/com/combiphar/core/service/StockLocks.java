@@ -0,0 +1,62 @@
+package com.combiphar.core.service;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped in-process locks on item IDs, taken by order placement around its
+ * stock decrement. Orders for the same hot item queue here instead of piling
+ * up on its row lock in MySQL. Orders whose items share a stripe still wait
+ * for each other. A caller takes all stripes it needs at once, in stripe
+ * order, so two multi-line orders can never deadlock on them.
+ */
+public final class StockLocks {
+
+    /** Number of lock stripes. */
+    private static final int STRIPES = 64;
+
+    private static final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    static {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    private StockLocks() {
+    }
+
+    /**
+     * Locks the stripes of the given items, blocking until all are held.
+     * Close the result to release them.
+     */
+    public static Held acquire(Collection<String> itemIds) {
+        int[] stripes = itemIds.stream()
+                .mapToInt(itemId -> Math.floorMod(itemId.hashCode(), STRIPES))
+                .distinct()
+                .sorted()
+                .toArray();
+        for (int stripe : stripes) {
+            locks[stripe].lock();
+        }
+        return new Held(stripes);
+    }
+
+    /**
+     * Stripes held by one caller.
+     */
+    public static final class Held implements AutoCloseable {
+        private final int[] stripes;
+
+        private Held(int[] stripes) {
+            this.stripes = stripes;
+        }
+
+        @Override
+        public void close() {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                locks[stripes[i]].unlock();
+            }
+        }
+    }
+}
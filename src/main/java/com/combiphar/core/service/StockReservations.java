@@ -0,0 +1,424 @@
+package com.combiphar.core.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.HashSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.combiphar.core.model.StockReservation;
+import com.combiphar.core.repository.StockReservationRepository;
+import com.combiphar.core.util.EnvConfig;
+
+/**
+ * Process-wide table of time-bounded stock holds. A cart that adds an item
+ * holds that quantity for {@link #HOLD_TTL}, so two customers cannot carry
+ * the last unit of a used item through checkout at the same time. Holds are
+ * keyed by item and by the cart's {@link com.combiphar.core.model.Cart#getHolderId()
+ * holder ID}; a cart holds at most its line quantity.
+ *
+ * The table is split into {@link #STRIPES} stripes by item ID, each guarded
+ * by its own lock, so carts working on different items do not contend.
+ * stock_reservations keeps a copy for restarts, written under the stripe
+ * lock so it sees changes to an item in the order they were made. A
+ * background thread drops expired holds from both; expired holds are
+ * ignored before that anyway.
+ */
+public final class StockReservations {
+
+    /** Hold lifetime, overridable with STOCK_HOLD_MINUTES. */
+    private static final Duration HOLD_TTL =
+            Duration.ofMinutes(Math.max(1, EnvConfig.getLong("STOCK_HOLD_MINUTES", 15)));
+    /** Number of independently locked stripes. */
+    private static final int STRIPES = 64;
+    /** Pause between expiry sweeps. */
+    private static final long SWEEP_INTERVAL_MS = 30_000;
+
+    private static final StockReservationRepository repository = new StockReservationRepository();
+    private static final Stripe[] stripes = new Stripe[STRIPES];
+
+    private static final AtomicLong placed = new AtomicLong();
+    private static final AtomicLong rejected = new AtomicLong();
+    private static final AtomicLong released = new AtomicLong();
+    private static final AtomicLong expired = new AtomicLong();
+    private static final AtomicLong persistFailures = new AtomicLong();
+
+    private static ScheduledExecutorService scheduler;
+
+    static {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    private StockReservations() {
+    }
+
+    /**
+     * Loads the live holds from stock_reservations and starts the expiry
+     * sweeper. Safe to call more than once.
+     */
+    public static synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        try {
+            Instant now = Instant.now();
+            for (StockReservation reservation : repository.findLive(now)) {
+                Stripe stripe = stripeFor(reservation.getItemId());
+                synchronized (stripe) {
+                    stripe.put(reservation);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("[StockReservations] failed to load holds: " + e.getMessage());
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stock-reservations");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(StockReservations::expireHolds,
+                SWEEP_INTERVAL_MS, SWEEP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Holds quantity units of the item for the holder, replacing its previous
+     * hold on the item and restarting the TTL.
+     *
+     * @param stock the item's current stock
+     * @throws IllegalArgumentException if other carts' holds leave fewer units
+     */
+    public static void reserve(String itemId, String holderId, int quantity, int stock) {
+        if (!tryReserve(itemId, holderId, quantity, stock)) {
+            throw new IllegalArgumentException("Stok sedang dipesan pelanggan lain. Tersedia: "
+                    + available(itemId, stock, holderId));
+        }
+    }
+
+    /**
+     * Like {@link #reserve(String, String, int, int)} but returns false
+     * instead of throwing when there are not enough free units.
+     */
+    public static boolean tryReserve(String itemId, String holderId, int quantity, int stock) {
+        if (itemId == null || holderId == null || quantity <= 0) {
+            throw new IllegalArgumentException("Reservasi stok tidak valid");
+        }
+
+        Instant now = Instant.now();
+        StockReservation reservation = new StockReservation(itemId, holderId, quantity, now.plus(HOLD_TTL));
+        Stripe stripe = stripeFor(itemId);
+        synchronized (stripe) {
+            if (stock - stripe.held(itemId, holderId, now) < quantity) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            stripe.put(reservation);
+            persist("save", () -> repository.upsert(reservation));
+        }
+        placed.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Drops the holder's holds on the given items.
+     */
+    public static void release(String holderId, Collection<String> itemIds) {
+        if (holderId == null || itemIds == null || itemIds.isEmpty()) {
+            return;
+        }
+
+        Map<Stripe, List<String>> byStripe = new LinkedHashMap<>();
+        for (String itemId : itemIds) {
+            byStripe.computeIfAbsent(stripeFor(itemId), stripe -> new ArrayList<>()).add(itemId);
+        }
+        for (Map.Entry<Stripe, List<String>> entry : byStripe.entrySet()) {
+            Stripe stripe = entry.getKey();
+            synchronized (stripe) {
+                List<String> removed = new ArrayList<>();
+                for (String itemId : entry.getValue()) {
+                    if (stripe.remove(itemId, holderId)) {
+                        removed.add(itemId);
+                    }
+                }
+                if (!removed.isEmpty()) {
+                    released.addAndGet(removed.size());
+                    persist("delete", () -> repository.delete(holderId, removed));
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves every hold of one holder to another, for a guest cart that
+     * becomes a signed-in user's cart. Where both hold the same item the
+     * moved hold wins, since the guest cart replaces the stored one.
+     */
+    public static void transfer(String fromHolderId, String toHolderId) {
+        if (fromHolderId == null || toHolderId == null || fromHolderId.equals(toHolderId)) {
+            return;
+        }
+
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                List<StockReservation> moved = new ArrayList<>();
+                stripe.transfer(fromHolderId, toHolderId, moved);
+                if (!moved.isEmpty()) {
+                    persist("transfer", () -> repository.transfer(fromHolderId, moved));
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the holder's holds on every item not in itemIds, such as holds
+     * an earlier session of the same user placed for lines that are no
+     * longer in the cart.
+     */
+    public static void retain(String holderId, Collection<String> itemIds) {
+        if (holderId == null) {
+            return;
+        }
+        Set<String> keep = new HashSet<>(itemIds);
+        List<String> stale = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (Map.Entry<String, Map<String, StockReservation>> entry : stripe.holdsByItem.entrySet()) {
+                    if (entry.getValue().containsKey(holderId) && !keep.contains(entry.getKey())) {
+                        stale.add(entry.getKey());
+                    }
+                }
+            }
+        }
+        release(holderId, stale);
+    }
+
+    /**
+     * Units of the item not held by other carts.
+     *
+     * @param stock the item's stock
+     * @param holderId the viewing cart, whose own hold still counts as
+     *        available to it; null to subtract every hold
+     */
+    public static int available(String itemId, Integer stock, String holderId) {
+        int units = stock != null ? stock : 0;
+        if (itemId == null) {
+            return units;
+        }
+        Stripe stripe = stripeFor(itemId);
+        synchronized (stripe) {
+            return Math.max(0, units - stripe.held(itemId, holderId, Instant.now()));
+        }
+    }
+
+    /**
+     * Removes expired holds from memory and from stock_reservations. Run by
+     * the background thread.
+     */
+    public static void expireHolds() {
+        Instant now = Instant.now();
+        int removed = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                removed += stripe.expire(now);
+            }
+        }
+        if (removed > 0) {
+            expired.addAndGet(removed);
+        }
+
+        try {
+            repository.deleteExpired(now);
+        } catch (Exception e) {
+            persistFailed("expire", e);
+        }
+    }
+
+    /**
+     * Counter bumped whenever a hold in the stripes of the items is placed,
+     * changed or dropped. Cached pages showing these items compare it to the
+     * value they were rendered with, so holds outside those stripes leave
+     * them alone.
+     */
+    public static long getVersion(Collection<String> itemIds) {
+        long sum = 0;
+        for (String itemId : itemIds) {
+            Stripe stripe = stripeFor(itemId);
+            synchronized (stripe) {
+                sum += stripe.version;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * When a hold was last placed, changed or dropped in the stripes of the
+     * items, or null if none was since startup. Pages showing these items
+     * use it as Last-Modified; a change to another item of the same stripe
+     * only makes it later than needed.
+     */
+    public static LocalDateTime getLastChange(Collection<String> itemIds) {
+        long millis = 0;
+        for (String itemId : itemIds) {
+            Stripe stripe = stripeFor(itemId);
+            synchronized (stripe) {
+                millis = Math.max(millis, stripe.lastChangeMillis);
+            }
+        }
+        return millis > 0 ? LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()) : null;
+    }
+
+    /**
+     * Counters for the admin metrics endpoint.
+     */
+    public static Map<String, Object> getStats() {
+        Instant now = Instant.now();
+        int holds = 0;
+        long units = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (Map<String, StockReservation> byHolder : stripe.holdsByItem.values()) {
+                    for (StockReservation reservation : byHolder.values()) {
+                        if (reservation.getExpiresAt().isAfter(now)) {
+                            holds++;
+                            units += reservation.getQuantity();
+                        }
+                    }
+                }
+            }
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("liveHolds", holds);
+        stats.put("heldUnits", units);
+        stats.put("ttlMinutes", HOLD_TTL.toMinutes());
+        stats.put("placed", placed.get());
+        stats.put("rejected", rejected.get());
+        stats.put("released", released.get());
+        stats.put("expired", expired.get());
+        stats.put("persistFailures", persistFailures.get());
+        return stats;
+    }
+
+    private static Stripe stripeFor(String itemId) {
+        return stripes[Math.floorMod(itemId.hashCode(), STRIPES)];
+    }
+
+    /**
+     * Writes a change to stock_reservations. Callers hold the stripe lock, so
+     * writes for an item reach the table in the order they were made in
+     * memory. A failed write is logged and the in-memory hold stands.
+     */
+    private static void persist(String operation, Write write) {
+        try {
+            write.run();
+        } catch (Exception e) {
+            persistFailed(operation, e);
+        }
+    }
+
+    private static void persistFailed(String operation, Exception e) {
+        persistFailures.incrementAndGet();
+        System.err.println("[StockReservations] " + operation + " failed: " + e.getMessage());
+    }
+
+    /**
+     * One write to stock_reservations.
+     */
+    @FunctionalInterface
+    private interface Write {
+        void run() throws Exception;
+    }
+
+    /**
+     * One stripe: holds by item ID, then by holder ID, and a change counter
+     * with the time of the last change. Callers lock the stripe.
+     */
+    private static final class Stripe {
+        private final Map<String, Map<String, StockReservation>> holdsByItem = new HashMap<>();
+        private long version;
+        private long lastChangeMillis;
+
+        private void touch() {
+            version++;
+            lastChangeMillis = System.currentTimeMillis();
+        }
+
+        private int held(String itemId, String exceptHolderId, Instant now) {
+            Map<String, StockReservation> byHolder = holdsByItem.get(itemId);
+            if (byHolder == null) {
+                return 0;
+            }
+            int units = 0;
+            for (StockReservation reservation : byHolder.values()) {
+                if (!reservation.getHolderId().equals(exceptHolderId) && reservation.getExpiresAt().isAfter(now)) {
+                    units += reservation.getQuantity();
+                }
+            }
+            return units;
+        }
+
+        private void put(StockReservation reservation) {
+            holdsByItem.computeIfAbsent(reservation.getItemId(), id -> new HashMap<>())
+                    .put(reservation.getHolderId(), reservation);
+            touch();
+        }
+
+        private void transfer(String fromHolderId, String toHolderId, List<StockReservation> moved) {
+            for (Map.Entry<String, Map<String, StockReservation>> entry : holdsByItem.entrySet()) {
+                StockReservation reservation = entry.getValue().remove(fromHolderId);
+                if (reservation != null) {
+                    StockReservation transferred = new StockReservation(entry.getKey(), toHolderId,
+                            reservation.getQuantity(), reservation.getExpiresAt());
+                    entry.getValue().put(toHolderId, transferred);
+                    touch();
+                    moved.add(transferred);
+                }
+            }
+        }
+
+        private boolean remove(String itemId, String holderId) {
+            Map<String, StockReservation> byHolder = holdsByItem.get(itemId);
+            if (byHolder == null || byHolder.remove(holderId) == null) {
+                return false;
+            }
+            if (byHolder.isEmpty()) {
+                holdsByItem.remove(itemId);
+            }
+            touch();
+            return true;
+        }
+
+        private int expire(Instant now) {
+            int removed = 0;
+            Iterator<Map.Entry<String, Map<String, StockReservation>>> items = holdsByItem.entrySet().iterator();
+            while (items.hasNext()) {
+                Map.Entry<String, Map<String, StockReservation>> entry = items.next();
+                Map<String, StockReservation> byHolder = entry.getValue();
+                int before = byHolder.size();
+                byHolder.values().removeIf(reservation -> !reservation.getExpiresAt().isAfter(now));
+                if (byHolder.size() < before) {
+                    removed += before - byHolder.size();
+                    touch();
+                }
+                if (byHolder.isEmpty()) {
+                    items.remove();
+                }
+            }
+            return removed;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.combiphar.core.util;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor for catalog pagination. Points at the last row of a
+ * page by its (created_at, id) sort key, prefixed by the relevance score when
+ * results are ranked; the next page starts strictly after it. Rows without
+ * created_at sort last (as in {@code ORDER BY created_at DESC}) and are
+ * encoded with the {@value #NULL_CREATED_AT} sentinel. Immutable.
+ */
+public final class CatalogCursor {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    /** Encoded in place of the timestamp for rows with a null created_at. */
+    private static final String NULL_CREATED_AT = "n";
+
+    private final LocalDateTime createdAt;
+    private final String id;
+    private final Integer score;
+
+    public CatalogCursor(LocalDateTime createdAt, String id) {
+        this(createdAt, id, null);
+    }
+
+    /**
+     * @param createdAt sort timestamp of the row; null for rows without one
+     * @param score relevance score of the row, or null for newest-first order
+     */
+    public CatalogCursor(LocalDateTime createdAt, String id, Integer score) {
+        if (id == null || id.isBlank()) {
+            throw new IllegalArgumentException("Cursor requires an id");
+        }
+        this.createdAt = createdAt;
+        this.id = id;
+        this.score = score;
+    }
+
+    /**
+     * Decodes a cursor from its query-string form.
+     *
+     * @param token encoded cursor (can be null)
+     * @return the cursor, or null if the token is missing or malformed
+     */
+    public static CatalogCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(DECODER.decode(token.trim()), StandardCharsets.UTF_8);
+            Integer score = null;
+            if (raw.startsWith("r")) {
+                int scoreSep = raw.indexOf(':');
+                if (scoreSep <= 1) {
+                    return null;
+                }
+                score = Integer.parseInt(raw.substring(1, scoreSep));
+                raw = raw.substring(scoreSep + 1);
+            }
+            int sep = raw.indexOf(':');
+            if (sep <= 0) {
+                return null;
+            }
+            String stamp = raw.substring(0, sep);
+            LocalDateTime createdAt = NULL_CREATED_AT.equals(stamp)
+                    ? null : new Timestamp(Long.parseLong(stamp)).toLocalDateTime();
+            return new CatalogCursor(createdAt, raw.substring(sep + 1), score);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public String encode() {
+        String stamp = createdAt != null ? String.valueOf(Timestamp.valueOf(createdAt).getTime()) : NULL_CREATED_AT;
+        String raw = (score != null ? "r" + score + ":" : "") + stamp + ":" + id;
+        return ENCODER.encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sort timestamp of the row, or null if the row has none.
+     */
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Relevance score of the row, or null when the page was newest first.
+     */
+    public Integer getScore() {
+        return score;
+    }
+
+    /**
+     * True if a row with the given sort key comes after this cursor in
+     * newest-first order.
+     */
+    public boolean isBefore(LocalDateTime rowCreatedAt, String rowId) {
+        if (createdAt == null) {
+            return rowCreatedAt == null && rowId.compareTo(id) < 0;
+        }
+        if (rowCreatedAt == null) {
+            return true;
+        }
+        int cmp = rowCreatedAt.compareTo(createdAt);
+        return cmp < 0 || (cmp == 0 && rowId.compareTo(id) < 0);
+    }
+}
@@ -0,0 +1,35 @@
+package com.combiphar.core.util;
+
+/**
+ * Reads optional settings from environment variables.
+ */
+public final class EnvConfig {
+
+    private EnvConfig() {
+    }
+
+    /**
+     * Returns the variable as a long, or the default when it is unset, blank
+     * or not a number (the last case is logged).
+     */
+    public static long getLong(String name, long defaultValue) {
+        String value = System.getenv(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("[EnvConfig] invalid " + name + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Returns the trimmed variable, or the default when it is unset or blank.
+     */
+    public static String getString(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+}
@@ -0,0 +1,83 @@
+package com.combiphar.core.util;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+
+import io.javalin.http.Context;
+import io.javalin.http.HttpStatus;
+
+/**
+ * Utility untuk conditional GET (ETag / Last-Modified / 304) dan header
+ * Cache-Control pada halaman katalog publik.
+ */
+public class HttpCaching {
+
+    /** Shared caches may store the response but must revalidate every time. */
+    public static final String PUBLIC_REVALIDATE = "public, no-cache";
+    /** Only the browser may store the response, and must revalidate. */
+    public static final String PRIVATE_REVALIDATE = "private, no-cache";
+
+    /**
+     * Sets the validators and answers 304 if the client copy is current.
+     * If-None-Match wins over If-Modified-Since, as in RFC 9110.
+     *
+     * @param ctx          request context
+     * @param etag         strong entity tag without quotes
+     * @param lastModified last modification time (can be null)
+     * @return true if a 304 was sent and the handler should stop
+     */
+    public static boolean notModified(Context ctx, String etag, LocalDateTime lastModified) {
+        String quoted = "\"" + etag + "\"";
+        ctx.header("ETag", quoted);
+
+        ZonedDateTime modified = null;
+        if (lastModified != null) {
+            modified = lastModified.atZone(ZoneId.systemDefault())
+                    .withZoneSameInstant(ZoneOffset.UTC)
+                    .truncatedTo(ChronoUnit.SECONDS);
+            ctx.header("Last-Modified", DateTimeFormatter.RFC_1123_DATE_TIME.format(modified));
+        }
+
+        String ifNoneMatch = ctx.header("If-None-Match");
+        boolean fresh;
+        if (ifNoneMatch != null) {
+            fresh = matches(ifNoneMatch, quoted);
+        } else {
+            fresh = modified != null && !modified.isAfter(parseHttpDate(ctx.header("If-Modified-Since")));
+        }
+
+        if (fresh) {
+            ctx.status(HttpStatus.NOT_MODIFIED);
+        }
+        return fresh;
+    }
+
+    private static boolean matches(String ifNoneMatch, String quoted) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(quoted) || tag.equals("W/" + quoted)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses an HTTP date, returning the epoch for missing or invalid values
+     * so that the comparison never counts as fresh.
+     */
+    private static ZonedDateTime parseHttpDate(String value) {
+        if (value != null) {
+            try {
+                return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            } catch (DateTimeParseException ignored) {
+            }
+        }
+        return ZonedDateTime.of(1970, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,104 @@
+package com.combiphar.core.util;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import io.javalin.http.Context;
+
+/**
+ * Writes a {"success": true, "data": [...]} JSON response row by row
+ * straight to the output stream, without collecting the list in memory.
+ *
+ * The response is opened lazily on the first row, so a failure before that
+ * (no connection, bad query) still propagates and the handler can answer a
+ * normal 500. Once bytes are out the status cannot change; a later failure
+ * is logged and the body is left truncated, which clients see as invalid
+ * JSON. Rows streamed from the database keep their connection until the
+ * client has read the last of them.
+ */
+public final class JsonStreamWriter {
+
+    /** Same configuration as Javalin's default mapper, so beans look the same. */
+    private static final ObjectMapper MAPPER = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    /** Writes the data array. */
+    @FunctionalInterface
+    public interface Rows {
+        void write(JsonStreamWriter out) throws IOException;
+    }
+
+    /** Writes extra top-level fields after the data array. */
+    @FunctionalInterface
+    public interface Fields {
+        void write(JsonGenerator json) throws IOException;
+    }
+
+    private final Context ctx;
+    private JsonGenerator json;
+
+    private JsonStreamWriter(Context ctx) {
+        this.ctx = ctx;
+    }
+
+    /**
+     * Streams a success response whose data array is written by {@code rows}.
+     */
+    public static void writeSuccess(Context ctx, Rows rows) {
+        writeSuccess(ctx, rows, null);
+    }
+
+    /**
+     * Streams a success response whose data array is written by {@code rows},
+     * followed by the fields written by {@code trailer} (can be null).
+     */
+    public static void writeSuccess(Context ctx, Rows rows, Fields trailer) {
+        JsonStreamWriter out = new JsonStreamWriter(ctx);
+        try {
+            rows.write(out);
+            JsonGenerator json = out.open();
+            json.writeEndArray();
+            if (trailer != null) {
+                trailer.write(json);
+            }
+            json.writeEndObject();
+            json.close();
+        } catch (IOException | RuntimeException e) {
+            if (out.json == null) {
+                throw e instanceof RuntimeException ? (RuntimeException) e
+                        : new RuntimeException("Gagal menulis respons JSON", e);
+            }
+            System.err.println("[JsonStreamWriter] " + ctx.path() + " aborted mid-stream: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes one element of the data array with Jackson bean serialization.
+     */
+    public void value(Object row) throws IOException {
+        open().writeObject(row);
+    }
+
+    /**
+     * Returns the generator positioned inside the data array, for elements
+     * written field by field.
+     */
+    public JsonGenerator element() throws IOException {
+        return open();
+    }
+
+    private JsonGenerator open() throws IOException {
+        if (json == null) {
+            ctx.contentType("application/json");
+            JsonGenerator generator = MAPPER.getFactory().createGenerator(ctx.outputStream());
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartObject();
+            generator.writeBooleanField("success", true);
+            generator.writeArrayFieldStart("data");
+            json = generator;
+        }
+        return json;
+    }
+}
@@ -30,6 +30,41 @@ public class Pagination<T> {
         this.items = allItems.subList(start, end);
     }
 
+    private Pagination(List<T> pageItems, int currentPage, int pageSize, int totalItems, int totalPages) {
+        this.items = pageItems;
+        this.currentPage = currentPage;
+        this.pageSize = pageSize;
+        this.totalItems = totalItems;
+        this.totalPages = totalPages;
+    }
+
+    /**
+     * Wraps one page that was already fetched, e.g. with LIMIT/OFFSET.
+     *
+     * @param pageItems the items of the page
+     * @param page the page number, as returned by {@link #clampPage(int, int, int)}
+     * @param totalItems number of items over all pages
+     */
+    public static <T> Pagination<T> ofPage(List<T> pageItems, int page, int pageSize, int totalItems) {
+        if (pageItems == null) {
+            throw new IllegalArgumentException("Items cannot be null");
+        }
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        int totalPages = (int) Math.ceil((double) totalItems / pageSize);
+        return new Pagination<>(pageItems, clampPage(page, pageSize, totalItems), pageSize, totalItems, totalPages);
+    }
+
+    /**
+     * Moves a requested page number into the valid range, so it can be used
+     * to compute an offset before the page is fetched.
+     */
+    public static int clampPage(int page, int pageSize, int totalItems) {
+        int totalPages = (int) Math.ceil((double) totalItems / pageSize);
+        return Math.max(1, Math.min(page, Math.max(1, totalPages)));
+    }
+
     public List<T> getItems() {
         return items;
     }
@@ -0,0 +1,74 @@
+package com.combiphar.core.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Tokenizer for catalog search. Lowercases with the Indonesian locale, strips
+ * diacritics and applies light Indonesian stemming (particles and possessive
+ * suffixes) so that "kursinya" and "kursi" end up as the same term.
+ */
+public final class SearchTokenizer {
+
+    private static final Locale INDONESIAN = Locale.forLanguageTag("id");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final String[] PARTICLES = {"lah", "kah", "tah", "pun"};
+    private static final String[] POSSESSIVES = {"nya", "ku", "mu"};
+    private static final int MIN_STEM_LENGTH = 4;
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * Splits text into normalized, stemmed tokens in their original order.
+     *
+     * @param text free text (can be null)
+     * @return list of tokens, empty if text has no searchable characters
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String raw : normalize(text).split(" ")) {
+            if (!raw.isEmpty()) {
+                tokens.add(stem(raw));
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Lowercases, strips diacritics and collapses every run of separators to
+     * one space, without stemming. Used for prefix completion.
+     *
+     * @param text free text (can be null)
+     * @return normalized text, empty if text has no searchable characters
+     */
+    public static String normalize(String text) {
+        if (text == null || text.isBlank()) {
+            return "";
+        }
+        String stripped = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARATOR.matcher(stripped.toLowerCase(INDONESIAN)).replaceAll(" ").trim();
+    }
+
+    /**
+     * Removes one particle and then one possessive suffix, keeping at least
+     * {@value #MIN_STEM_LENGTH} characters so short words are left alone.
+     */
+    public static String stem(String token) {
+        String stemmed = stripSuffix(token, PARTICLES);
+        return stripSuffix(stemmed, POSSESSIVES);
+    }
+
+    private static String stripSuffix(String token, String[] suffixes) {
+        for (String suffix : suffixes) {
+            if (token.endsWith(suffix) && token.length() - suffix.length() >= MIN_STEM_LENGTH) {
+                return token.substring(0, token.length() - suffix.length());
+            }
+        }
+        return token;
+    }
+}
@@ -1,5 +1,7 @@
 /**
- * Cart page controls for quantity updates and item removal.
+ * Cart page controls for quantity updates and item removal. Quantity clicks
+ * are collected for a short while and sent together with any removal as one
+ * /api/cart/batch request.
  */
 (function() {
   'use strict';
@@ -7,6 +9,12 @@
   const quantityButtons = document.querySelectorAll('.cart-item__quantity-control');
   const removeForms = document.querySelectorAll('form[action="/api/cart/remove"]');
   const clearButton = document.getElementById('clearCartButton');
+  const BATCH_DELAY_MS = 600;
+
+  // Pending operations by item ID, and the quantity shown before each edit
+  const pendingOps = new Map();
+  const shownQuantities = new Map();
+  let batchTimer = null;
 
   function showError(message) {
     if (window.showToast) {
@@ -28,34 +36,67 @@
       body,
       credentials: 'same-origin',
       headers: { 'Content-Type': 'application/x-www-form-urlencoded' }
-    }).then(res => {
-      // No content
-      if (res.status === 204) return { success: true };
-      const ct = (res.headers.get('content-type') || '').toLowerCase();
-      if (ct.includes('application/json')) {
-        return res.json().catch(() => ({ success: false, message: 'Respons tidak valid' }));
-      }
-      // Try to parse text as JSON if content-type is missing/incorrect, otherwise return text as message
-      return res.text().then(text => {
-        if (!text) return { success: false, message: 'Respons tidak valid' };
-        try {
-          return JSON.parse(text);
-        } catch (e) {
-          return { success: false, message: text };
-        }
-      });
-    }).catch(() => ({ success: false, message: 'Respons tidak valid' }));
+    }).then(readResponse).catch(() => ({ success: false, message: 'Respons tidak valid' }));
+  }
+
+  function postJson(url, payload) {
+    return fetch(url, {
+      method: 'POST',
+      body: JSON.stringify(payload),
+      credentials: 'same-origin',
+      headers: { 'Content-Type': 'application/json' }
+    }).then(readResponse).catch(() => ({ success: false, message: 'Respons tidak valid' }));
   }
 
-  function updateQuantity(itemId, quantity) {
-    return postForm('/api/cart/update', {
-      itemId: itemId,
-      quantity: String(quantity)
+  function readResponse(res) {
+    // No content
+    if (res.status === 204) return { success: true };
+    const ct = (res.headers.get('content-type') || '').toLowerCase();
+    if (ct.includes('application/json')) {
+      return res.json().catch(() => ({ success: false, message: 'Respons tidak valid' }));
+    }
+    // Try to parse text as JSON if content-type is missing/incorrect, otherwise return text as message
+    return res.text().then(text => {
+      if (!text) return { success: false, message: 'Respons tidak valid' };
+      try {
+        return JSON.parse(text);
+      } catch (e) {
+        return { success: false, message: text };
+      }
     });
   }
 
-  function removeItem(itemId) {
-    return postForm('/api/cart/remove', { itemId: itemId });
+  function quantityElementOf(itemId) {
+    const button = document.querySelector('.cart-item__quantity-control[data-itemid="' + CSS.escape(itemId) + '"]');
+    const container = button ? button.closest('.cart-item') : null;
+    return container ? container.querySelector('.cart-item__quantity-value') : null;
+  }
+
+  function queueOperation(op, immediate) {
+    pendingOps.set(op.itemId, op);
+    clearTimeout(batchTimer);
+    batchTimer = setTimeout(sendBatch, immediate ? 0 : BATCH_DELAY_MS);
+  }
+
+  function sendBatch() {
+    batchTimer = null;
+    const ops = Array.from(pendingOps.values());
+    pendingOps.clear();
+    if (ops.length === 0) return;
+
+    postJson('/api/cart/batch', ops).then(json => {
+      if (json && json.success) {
+        window.location.reload();
+        return;
+      }
+      // Nothing was applied; show the quantities from before the edit again
+      shownQuantities.forEach((quantity, itemId) => {
+        const quantityEl = quantityElementOf(itemId);
+        if (quantityEl) quantityEl.textContent = String(quantity);
+      });
+      shownQuantities.clear();
+      showError(json && json.message ? json.message : 'Gagal memperbarui keranjang.');
+    });
   }
 
   function clearCart() {
@@ -90,15 +131,9 @@
         return;
       }
 
-      updateQuantity(itemId, nextQty).then(json => {
-        if (json && json.success) {
-          window.location.reload();
-          return;
-        }
-        showError(json && json.message ? json.message : 'Gagal memperbarui kuantitas.');
-      }).catch(() => {
-        showError('Terjadi kesalahan saat memperbarui kuantitas.');
-      });
+      if (!shownQuantities.has(itemId)) shownQuantities.set(itemId, currentQty);
+      quantityEl.textContent = String(nextQty);
+      queueOperation({ action: 'update', itemId: itemId, quantity: nextQty }, false);
     });
   });
 
@@ -113,15 +148,8 @@
         return;
       }
 
-      removeItem(itemId).then(json => {
-        if (json && json.success) {
-          window.location.reload();
-          return;
-        }
-        showError(json && json.message ? json.message : 'Gagal menghapus item.');
-      }).catch(() => {
-        showError('Terjadi kesalahan saat menghapus item.');
-      });
+      // Sent together with any quantity changes still waiting
+      queueOperation({ action: 'remove', itemId: itemId }, true);
     });
   });
 
@@ -1,10 +1,13 @@
 /**
- * Checkout page interactions: refresh order summary when courier changes.
+ * Checkout page interactions: refresh order summary when the courier or the
+ * shipping address changes. Rates depend on the address, so couriers that do
+ * not serve it are disabled.
  */
 (function() {
   'use strict';
 
   const courierSelect = document.getElementById('courier');
+  const addressSelect = document.getElementById('addressSelect');
   const subtotalEl = document.querySelector('[data-summary="subtotal"]');
   const shippingEl = document.querySelector('[data-summary="shipping"]');
   const totalEl = document.querySelector('[data-summary="total"]');
@@ -24,10 +27,20 @@
     if (totalEl) totalEl.textContent = formatCurrency(summary.totalPrice);
   }
 
+  function updateCouriers(available) {
+    if (!Array.isArray(available)) return;
+    Array.from(courierSelect.options).forEach(option => {
+      option.disabled = !available.includes(option.value);
+    });
+  }
+
   function fetchSummary() {
     if (!courierSelect) return;
     const data = new FormData();
     data.append('courier', courierSelect.value);
+    if (addressSelect && addressSelect.value) {
+      data.append('addressId', addressSelect.value);
+    }
 
     fetch('/api/checkout/calculate', {
       method: 'POST',
@@ -36,6 +49,7 @@
     })
       .then(res => res.json())
       .then(json => {
+        if (json) updateCouriers(json.availableCouriers);
         if (json && json.success) {
           updateSummary(json);
           return;
@@ -50,6 +64,9 @@
 
   if (courierSelect) {
     courierSelect.addEventListener('change', fetchSummary);
+    if (addressSelect) {
+      addressSelect.addEventListener('change', fetchSummary);
+    }
     fetchSummary();
   }
 
@@ -146,6 +146,8 @@
     const formData = new FormData();
     formData.append('paymentProof', fileInput.files[0]);
     formData.append('bank', bankSelect.value);
+    // Same key on every retry, so the server places the order only once
+    formData.append('idempotencyKey', uploadForm.elements.idempotencyKey.value);
 
     fetch('/api/payment/upload', {
       method: 'POST',
@@ -0,0 +1,174 @@
+package com.combiphar.core.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.combiphar.core.config.DatabaseConfig;
+import com.combiphar.core.model.Cart;
+import com.combiphar.core.model.CartItem;
+
+/**
+ * Places orders from many threads at once for the last units of two items
+ * through {@link OrderService#createOrder}, so stock, order, lines and
+ * payment are written in the same transaction as checkout. Half the carts
+ * list the items in the opposite order. No unit may be sold twice.
+ *
+ * Runs against the throwaway schema set up by the Gradle test task from
+ * TEST_DB_URL; skipped when it is not set.
+ */
+class OrderServiceStockTest {
+
+    private static final String SCHEMA = System.getenv("TEST_DB_SCHEMA");
+    private static final int STOCK = 5;
+    private static final int BUYERS = 40;
+    private static final BigDecimal PRICE = new BigDecimal("100000.00");
+
+    private static String userId;
+    private static String categoryId;
+
+    @BeforeAll
+    static void createSchema() throws IOException, SQLException {
+        assumeTrue(SCHEMA != null && !SCHEMA.isBlank(), "TEST_DB_URL not set");
+        assumeTrue(System.getenv("DB_URL").contains("/" + SCHEMA + "?"), "DB_URL is not the test schema");
+
+        String sql = Files.lines(Path.of(System.getProperty("user.dir"), "database", "schema_v2.sql"))
+                .map(line -> line.replaceAll("--.*$", ""))
+                .collect(Collectors.joining("\n"));
+        try (Connection conn = DatabaseConfig.getConnection();
+                Statement stmt = conn.createStatement()) {
+            for (String statement : sql.split(";")) {
+                String trimmed = statement.trim();
+                // The schema file creates and selects combiphar_db; stay in the test schema
+                if (!trimmed.isEmpty() && !trimmed.startsWith("CREATE DATABASE") && !trimmed.startsWith("USE ")) {
+                    stmt.execute(trimmed);
+                }
+            }
+        }
+
+        userId = UUID.randomUUID().toString();
+        categoryId = UUID.randomUUID().toString();
+        execute("INSERT INTO users (id, name, email, password, role) VALUES (?, 'Stock Test', ?, 'x', 'CUSTOMER')",
+                userId, userId + "@test.local");
+        execute("INSERT INTO categories (id, name) VALUES (?, 'Stock Test')", categoryId);
+    }
+
+    @AfterAll
+    static void dropSchema() throws SQLException {
+        if (SCHEMA == null || SCHEMA.isBlank() || !System.getenv("DB_URL").contains("/" + SCHEMA + "?")) {
+            return;
+        }
+        try (Connection conn = DatabaseConfig.getConnection();
+                Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP DATABASE `" + SCHEMA + "`");
+        }
+    }
+
+    @Test
+    void concurrentOrdersNeverOversell() throws Exception {
+        String itemA = insertItem("Stock Test A");
+        String itemB = insertItem("Stock Test B");
+        OrderService orderService = new OrderService();
+
+        AtomicInteger placed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Throwable> errors = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(BUYERS);
+
+        for (int i = 0; i < BUYERS; i++) {
+            List<String> lines = i % 2 == 0 ? List.of(itemA, itemB) : List.of(itemB, itemA);
+            pool.submit(() -> {
+                Cart cart = new Cart();
+                lines.forEach(itemId -> cart.addItem(new CartItem(itemId, itemId, PRICE, 1)));
+                try {
+                    start.await();
+                    orderService.createOrder(userId, null, cart, null, "BCA", null);
+                    placed.incrementAndGet();
+                } catch (IllegalArgumentException e) {
+                    rejected.incrementAndGet();
+                } catch (Throwable e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                }
+                return null;
+            });
+        }
+
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(2, TimeUnit.MINUTES), "buyers did not finish");
+
+        assertTrue(errors.isEmpty(), () -> "orders failed: " + errors);
+        assertEquals(BUYERS, placed.get() + rejected.get());
+        assertTrue(readStock(itemA) >= 0, "item A oversold");
+        assertTrue(readStock(itemB) >= 0, "item B oversold");
+        assertEquals(STOCK, placed.get());
+        assertEquals(STOCK, countOrders(itemA));
+        assertEquals(STOCK, countOrders(itemB));
+        assertEquals(0, readStock(itemA));
+        assertEquals(0, readStock(itemB));
+    }
+
+    private static String insertItem(String name) throws SQLException {
+        String id = UUID.randomUUID().toString();
+        execute("INSERT INTO items (id, category_id, name, `condition`, price, stock, eligibility_status, "
+                + "is_published) VALUES (?, ?, ?, 'USED_GOOD', ?, ?, 'ELIGIBLE', true)",
+                id, categoryId, name, PRICE, STOCK);
+        return id;
+    }
+
+    private static int readStock(String itemId) throws SQLException {
+        return queryInt("SELECT stock FROM items WHERE id = ?", itemId);
+    }
+
+    private static int countOrders(String itemId) throws SQLException {
+        return queryInt("SELECT COUNT(DISTINCT o.id) FROM orders o "
+                + "JOIN order_items oi ON oi.order_id = o.id "
+                + "JOIN payments p ON p.order_id = o.id WHERE oi.item_id = ?", itemId);
+    }
+
+    private static int queryInt(String sql, String param) throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, param);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : -1;
+            }
+        }
+    }
+
+    private static void execute(String sql, Object... params) throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                stmt.setObject(i + 1, params[i]);
+            }
+            stmt.executeUpdate();
+        }
+    }
+}